@@ -8,6 +8,7 @@ import org.springframework.boot.autoconfigure.security.servlet.UserDetailsServic
 import org.springframework.context.annotation.Bean;
 import org.springframework.data.jpa.repository.config.EnableJpaAuditing;
 import org.springframework.scheduling.annotation.EnableAsync;
+import org.springframework.scheduling.annotation.EnableScheduling;
 import project.brianle.securestorage.domain.RequestContext;
 import project.brianle.securestorage.entity.RoleEntity;
 import project.brianle.securestorage.enumeration.Authority;
@@ -16,6 +17,7 @@ import project.brianle.securestorage.repository.RoleRepository;
 @SpringBootApplication
 @EnableJpaAuditing
 @EnableAsync
+@EnableScheduling
 public class Application {
 
     public static void main(String[] args) {
@@ -1,15 +1,71 @@
 package project.brianle.securestorage.cache;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Component;
+import project.brianle.securestorage.dto.IDocument;
+import project.brianle.securestorage.dto.response.UserResponse;
 
-import java.util.concurrent.TimeUnit;
+import java.time.Duration;
+import java.util.List;
+
+import static project.brianle.securestorage.cache.CacheRegion.*;
 
 @Component
+@RequiredArgsConstructor
 public class CacheConfig {
+    private final Environment environment;
+    private final MeterRegistry meterRegistry;
+
+    @Bean
+    @ConditionalOnProperty(name = "cache.counter-store", havingValue = "memory", matchIfMissing = true)
+    public InMemoryCounterStore<String> inMemoryCounterStore(){
+        return monitor(new InMemoryCounterStore<>(LOGIN_ATTEMPTS, maximumSize(LOGIN_ATTEMPTS), expiry(LOGIN_ATTEMPTS)));
+    }
+
+    //lockout has to hold across every instance behind the load balancer, not per JVM
+    @Bean
+    @ConditionalOnProperty(name = "cache.counter-store", havingValue = "postgres")
+    public PostgresCounterStore postgresCounterStore(JdbcTemplate jdbcTemplate){
+        return new PostgresCounterStore(jdbcTemplate, expiry(LOGIN_ATTEMPTS));
+    }
+
+    //principals are looked up on every authenticated request, keep them briefly so writes elsewhere are picked up quickly
+    @Bean
+    public CacheStore<String, UserResponse> userCache(){
+        return monitor(new CacheStore<>(PRINCIPALS, maximumSize(PRINCIPALS), expiry(PRINCIPALS)));
+    }
+
+    @Bean
+    public CacheStore<String, IDocument> documentCache(){
+        return monitor(new CacheStore<>(DOCUMENTS, maximumSize(DOCUMENTS), expiry(DOCUMENTS)));
+    }
+
+    @Bean
+    public CacheStore<String, Long> roleCache(){
+        return monitor(new CacheStore<>(ROLES, maximumSize(ROLES), expiry(ROLES)));
+    }
 
     @Bean
-    public CacheStore<String, Integer> cacheStore(){
-        return new CacheStore<>(900, TimeUnit.SECONDS);
+    public CacheRegionsEndpoint cacheRegionsEndpoint(List<CacheStore<?, ?>> cacheStores){
+        return new CacheRegionsEndpoint(cacheStores);
+    }
+
+    private <S extends CacheStore<?, ?>> S monitor(S cacheStore){
+        CaffeineCacheMetrics.monitor(meterRegistry, cacheStore.cache(), cacheStore.getRegion().getName());
+        return cacheStore;
+    }
+
+    private long maximumSize(CacheRegion region){
+        return environment.getProperty("cache.regions." + region.getName() + ".maximum-size", Long.class, region.getMaximumSize());
+    }
+
+    private Duration expiry(CacheRegion region){
+        return environment.getProperty("cache.regions." + region.getName() + ".expiry", Duration.class, region.getExpiry());
     }
 }
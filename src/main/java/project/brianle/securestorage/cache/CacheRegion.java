@@ -0,0 +1,38 @@
+package project.brianle.securestorage.cache;
+
+import java.time.Duration;
+
+/**
+ * Named cache regions with their default bounds. Each can be overridden with
+ * {@code cache.regions.<name>.maximum-size} and {@code cache.regions.<name>.expiry}.
+ */
+public enum CacheRegion {
+    LOGIN_ATTEMPTS("login-attempts", 100_000, Duration.ofSeconds(900), ExpiryPolicy.AFTER_WRITE),
+    PRINCIPALS("principals", 10_000, Duration.ofSeconds(60), ExpiryPolicy.AFTER_WRITE),
+    DOCUMENTS("documents", 10_000, Duration.ofMinutes(10), ExpiryPolicy.AFTER_WRITE),
+    ROLES("roles", 100, Duration.ofHours(1), ExpiryPolicy.AFTER_WRITE);
+
+    private final String name;
+    private final long maximumSize;
+    private final Duration expiry;
+    private final ExpiryPolicy expiryPolicy;
+
+    CacheRegion(String name, long maximumSize, Duration expiry, ExpiryPolicy expiryPolicy) {
+        this.name = name;
+        this.maximumSize = maximumSize;
+        this.expiry = expiry;
+        this.expiryPolicy = expiryPolicy;
+    }
+
+    public String getName() { return this.name; }
+
+    public long getMaximumSize() { return this.maximumSize; }
+
+    public Duration getExpiry() { return this.expiry; }
+
+    public ExpiryPolicy getExpiryPolicy() { return this.expiryPolicy; }
+
+    public enum ExpiryPolicy {
+        AFTER_WRITE, AFTER_ACCESS
+    }
+}
@@ -0,0 +1,38 @@
+package project.brianle.securestorage.cache;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+/**
+ * Exposes per-region cache statistics at {@code /actuator/cacheregions}, to admins only.
+ */
+@Endpoint(id = "cacheregions")
+@RequiredArgsConstructor
+public class CacheRegionsEndpoint {
+    private final List<CacheStore<?, ?>> cacheStores;
+
+    @ReadOperation
+    public Map<String, Map<String, Object>> regions() {
+        Map<String, Map<String, Object>> regions = new LinkedHashMap<>();
+        cacheStores.forEach(cacheStore -> {
+            var stats = cacheStore.stats();
+            Map<String, Object> region = new LinkedHashMap<>();
+            region.put("size", cacheStore.size());
+            region.put("hitCount", stats.hitCount());
+            region.put("missCount", stats.missCount());
+            region.put("hitRate", stats.hitRate());
+            region.put("evictionCount", stats.evictionCount());
+            region.put("loadCount", stats.loadCount());
+            region.put("averageLoadMillis", NANOSECONDS.toMillis((long) stats.averageLoadPenalty()));
+            regions.put(cacheStore.getRegion().getName(), region);
+        });
+        return regions;
+    }
+}
@@ -1,38 +1,77 @@
 package project.brianle.securestorage.cache;
 
-import com.google.common.cache.Cache;
-import com.google.common.cache.CacheBuilder;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
 import jakarta.validation.constraints.NotNull;
-import lombok.extern.slf4j.Slf4j;
+import lombok.Getter;
 
-import java.util.concurrent.TimeUnit;
+import java.time.Duration;
+import java.util.function.BiFunction;
+import java.util.function.Function;
 
-@Slf4j
+import static project.brianle.securestorage.cache.CacheRegion.ExpiryPolicy.AFTER_ACCESS;
+
+/**
+ * A bounded cache for one {@link CacheRegion}. Size-based eviction uses Caffeine's W-TinyLFU policy,
+ * and hit, miss, eviction and load statistics are always recorded.
+ */
 public class CacheStore<K, V> {
+    @Getter
+    private final CacheRegion region;
     private final Cache<K, V> cache;
 
-    public CacheStore(int expiryDuration, TimeUnit timeUnit){
-        cache = CacheBuilder.newBuilder()
-                .expireAfterWrite(expiryDuration, timeUnit)
-                // setting the concurrency level to the number of available processors
-                // ensures that the cache can efficiently handle multiple simultaneous login
-                // attempts or updates,
-                .concurrencyLevel(Runtime.getRuntime().availableProcessors())
-                .build();
+    public CacheStore(CacheRegion region){
+        this(region, region.getMaximumSize(), region.getExpiry());
+    }
+
+    public CacheStore(CacheRegion region, long maximumSize, Duration expiry){
+        this.region = region;
+        Caffeine<Object, Object> builder = Caffeine.newBuilder().maximumSize(maximumSize).recordStats();
+        cache = (region.getExpiryPolicy() == AFTER_ACCESS ? builder.expireAfterAccess(expiry) : builder.expireAfterWrite(expiry)).build();
     }
 
     public V get(@NotNull K key){
-        log.info("Retrieving from Cache with key {}", key.toString());
         return cache.getIfPresent(key);
     }
 
+    /**
+     * Returns the cached value, loading it with {@code loader} on a miss. Concurrent misses on the same key
+     * load once, and the load time is recorded in the region statistics.
+     */
+    public V get(@NotNull K key, @NotNull Function<? super K, ? extends V> loader){
+        return cache.get(key, loader);
+    }
+
     public void put(@NotNull K key, @NotNull V value){
-        log.info("Store value {} to Cache at key {}", value.toString(), key.toString());
         cache.put(key, value);
     }
 
     public void evict(@NotNull K key){
-        log.info("Removing value from Cache at key {}", key.toString());
         cache.invalidate(key);
     }
+
+    /**
+     * Atomically recomputes the value at {@code key}; the function sees {@code null} when the key is absent
+     * and returning {@code null} removes the entry. Other writers to the same key wait for it to finish.
+     */
+    public V compute(@NotNull K key, @NotNull BiFunction<? super K, ? super V, ? extends V> remappingFunction){
+        return cache.asMap().compute(key, remappingFunction);
+    }
+
+    public V getAndEvict(@NotNull K key){
+        return cache.asMap().remove(key);
+    }
+
+    public long size(){
+        return cache.estimatedSize();
+    }
+
+    public CacheStats stats(){
+        return cache.stats();
+    }
+
+    Cache<K, V> cache(){
+        return cache;
+    }
 }
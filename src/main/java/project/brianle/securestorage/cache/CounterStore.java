@@ -0,0 +1,21 @@
+package project.brianle.securestorage.cache;
+
+import jakarta.validation.constraints.NotNull;
+
+/**
+ * Expiring counters shared by everything that enforces a limit, such as brute-force lockout.
+ * Select the backend with {@code cache.counter-store}: {@code memory} keeps counts in this JVM,
+ * {@code postgres} shares them between every instance pointed at the same database.
+ */
+public interface CounterStore<K> {
+
+    /**
+     * Adds one to the counter at {@code key}, starting from zero when it is absent or expired,
+     * and returns the new count. Concurrent increments of the same key are never lost.
+     */
+    int increment(@NotNull K key);
+
+    Integer get(@NotNull K key);
+
+    void evict(@NotNull K key);
+}
@@ -0,0 +1,21 @@
+package project.brianle.securestorage.cache;
+
+import jakarta.validation.constraints.NotNull;
+
+import java.time.Duration;
+
+public class InMemoryCounterStore<K> extends CacheStore<K, Integer> implements CounterStore<K> {
+
+    public InMemoryCounterStore(CacheRegion region){
+        super(region);
+    }
+
+    public InMemoryCounterStore(CacheRegion region, long maximumSize, Duration expiry){
+        super(region, maximumSize, expiry);
+    }
+
+    @Override
+    public int increment(@NotNull K key){
+        return compute(key, (k, count) -> count == null ? 1 : count + 1);
+    }
+}
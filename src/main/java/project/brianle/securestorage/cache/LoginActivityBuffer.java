@@ -0,0 +1,64 @@
+package project.brianle.securestorage.cache;
+
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import project.brianle.securestorage.domain.LoginActivity;
+import project.brianle.securestorage.dto.response.UserResponse;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static project.brianle.securestorage.constant.Constants.*;
+
+/**
+ * Write-behind buffer for login bookkeeping. Attempt counters, lock flags and last-login timestamps are
+ * collapsed per user in memory and written to {@code users} in one JDBC batch of targeted updates,
+ * so login traffic does not cost a row read and write per attempt.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class LoginActivityBuffer {
+    private static final String UPDATE_LOGIN_ACTIVITY = "UPDATE users SET login_attempts = ?, account_non_locked = ?, last_login = COALESCE(?, last_login) WHERE id = ?";
+    private final JdbcTemplate jdbcTemplate;
+    private final CacheStore<String, UserResponse> userCache;
+    private final Map<Long, LoginActivity> pending = new ConcurrentHashMap<>();
+
+    public void record(LoginActivity activity) {
+        pending.merge(activity.id(), activity, LoginActivity::mergeWith);
+    }
+
+    @PreDestroy
+    @Scheduled(fixedDelayString = "${security.login-activity.flush-interval:5000}")
+    public void flush() {
+        if(pending.isEmpty()) { return; }
+        List<LoginActivity> batch = new ArrayList<>(pending.size());
+        pending.keySet().forEach(id -> {
+            var activity = pending.remove(id);
+            if(activity != null) { batch.add(activity); }
+        });
+        try {
+            jdbcTemplate.batchUpdate(UPDATE_LOGIN_ACTIVITY, batch, batch.size(), (statement, activity) -> {
+                statement.setInt(1, activity.loginAttempts());
+                statement.setBoolean(2, activity.accountNonLocked());
+                statement.setObject(3, activity.lastLogin());
+                statement.setLong(4, activity.id());
+            });
+            batch.forEach(activity -> {
+                userCache.evict(USER_ID_KEY + activity.userId());
+                userCache.evict(ID_KEY + activity.id());
+                userCache.evict(EMAIL_KEY + activity.email().toLowerCase());
+            });
+        } catch (Exception exception) {
+            log.error("Unable to write {} login activities: {}", batch.size(), exception.getMessage());
+            //put them back unless a newer activity arrived in the meantime
+            batch.forEach(activity -> pending.merge(activity.id(), activity, (newer, failed) -> failed.mergeWith(newer)));
+        }
+    }
+}
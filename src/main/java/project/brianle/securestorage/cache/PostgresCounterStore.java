@@ -0,0 +1,64 @@
+package project.brianle.securestorage.cache;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.validation.constraints.NotNull;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.time.Duration;
+
+/**
+ * Counters kept in an UNLOGGED Postgres table so every application instance sees the same count.
+ * Each increment is a single upsert, so concurrent attempts from different nodes are serialized by the row lock
+ * and never lost. Like the in-memory store, every write pushes the expiry out again; expired rows count as zero
+ * and are purged in the background. UNLOGGED skips the WAL, so the table is emptied after a database crash,
+ * which at worst resets the lockout windows that were open.
+ */
+@Slf4j
+@RequiredArgsConstructor
+public class PostgresCounterStore implements CounterStore<String> {
+    private static final String CREATE_TABLE = """
+            CREATE UNLOGGED TABLE IF NOT EXISTS counters (
+                counter_key VARCHAR(255) PRIMARY KEY,
+                count INTEGER NOT NULL,
+                expires_at TIMESTAMP(6) WITH TIME ZONE NOT NULL
+            )""";
+    private static final String INCREMENT = """
+            INSERT INTO counters AS counter (counter_key, count, expires_at) VALUES (?, 1, now() + ? * INTERVAL '1 millisecond')
+            ON CONFLICT (counter_key) DO UPDATE
+            SET count = CASE WHEN counter.expires_at <= now() THEN 1 ELSE counter.count + 1 END, expires_at = EXCLUDED.expires_at
+            RETURNING count""";
+    private static final String SELECT_COUNT = "SELECT count FROM counters WHERE counter_key = ? AND expires_at > now()";
+    private static final String DELETE_COUNT = "DELETE FROM counters WHERE counter_key = ?";
+    private static final String DELETE_EXPIRED = "DELETE FROM counters WHERE expires_at <= now()";
+    private final JdbcTemplate jdbcTemplate;
+    private final Duration expiry;
+
+    @PostConstruct
+    public void init() {
+        jdbcTemplate.execute(CREATE_TABLE);
+    }
+
+    @Override
+    public int increment(@NotNull String key) {
+        return jdbcTemplate.queryForObject(INCREMENT, Integer.class, key, expiry.toMillis());
+    }
+
+    @Override
+    public Integer get(@NotNull String key) {
+        return jdbcTemplate.queryForList(SELECT_COUNT, Integer.class, key).stream().findFirst().orElse(null);
+    }
+
+    @Override
+    public void evict(@NotNull String key) {
+        jdbcTemplate.update(DELETE_COUNT, key);
+    }
+
+    @Scheduled(fixedDelayString = "${cache.counter-store-cleanup-interval:60000}")
+    public void purgeExpired() {
+        int purged = jdbcTemplate.update(DELETE_EXPIRED);
+        if(purged > 0) { log.debug("Purged {} expired counters", purged); }
+    }
+}
@@ -5,14 +5,24 @@ public class Constants {
     public static final String[] PUBLIC_URLS = { "/user/resetpassword/reset/**", "/user/verify/resetpassword/**", "/user/resetpassword/**", "/user/verify/qrcode/**", "/user/login/**", "/user/verify/account/**", "/user/register/**", "/user/new/password/**", "/user/verify/**", "/user/resetpassword/**", "/user/image/**", "/user/verify/password/**" };
     public static final int NINETY_DAYS = 90;
     public static final int STRENGTH = 12;
+    public static final int MAX_LOGIN_ATTEMPTS = 5;
+    public static final int RETRY_AFTER_SECONDS = 1;
     public static final String BASE_PATH = "/**";
     public static final String FILE_NAME = "File-Name";
+    public static final int STREAM_BUFFER_SIZE = 64 * 1024;
+    public static final int ID_BLOCK_SIZE = 50;
     public static final String LOGIN_PATH = "/user/login";
     public static final String[] PUBLIC_ROUTES = { "/user/resetpassword/reset", "/user/verify/resetpassword", "/user/resetpassword", "/user/verify/qrcode", "/user/stream", "/user/id", "/user/login", "/user/register", "/user/new/password", "/user/verify", "/user/refresh/token", "/user/resetpassword", "/user/image", "/user/verify/account", "/user/verify/password", "/user/verify/code"};
+    public static final String USER_ID_KEY = "userId:";
+    public static final String ID_KEY = "id:";
+    public static final String EMAIL_KEY = "email:";
     public static final String AUTHORITIES = "authorities";
     public static final String ISSUER = "Secure Storage";
     public static final String EMPTY_VALUE = "empty";
     public static final String ROLE = "role";
+    public static final String PRINCIPAL = "principal";
+    public static final String PRINCIPAL_ID = "id";
+    public static final String SECURITY_VERSION = "ver";
     public static final String ROLE_PREFIX = "ROLE_";
     public static final String AUTHORITY_DELIMITER = ",";
     public static final String USER_AUTHORITIES = "document:create,document:read,document:update,document:delete";
@@ -20,7 +30,10 @@ public class Constants {
     public static final String SUPER_ADMIN_AUTHORITIES = "user:create,user:read,user:update,user:delete,document:create,document:read,document:update,document:delete";
     public static final String MANAGER_AUTHORITIES = "document:create,document:read,document:update,document:delete";
 
-    public static final String SELECT_DOCUMENTS_QUERY = "SELECT doc.id, doc.document_id, doc.name, doc.description, doc.uri, doc.icon, doc.size, doc.formatted_size, doc.extension, doc.reference_id, doc.created_at, doc.updated_at, CONCAT(owner.first_name, ' ', owner.last_name) AS owner_name, owner.email AS owner_email, owner.phone AS owner_phone, owner.last_login AS owner_last_login, CONCAT(updater.first_name, ' ', updater.last_name) AS updater_name FROM documents doc JOIN users owner ON owner.id = doc.created_by JOIN users updater ON updater.id = doc.updated_by";
-    public static final String SELECT_DOCUMENT_QUERY = "SELECT doc.id, doc.document_id, doc.name, doc.description, doc.uri, doc.icon, doc.size, doc.formatted_size, doc.extension, doc.reference_id, doc.created_at, doc.updated_at, CONCAT(owner.first_name, ' ', owner.last_name) AS owner_name, owner.email AS owner_email, owner.phone AS owner_phone, owner.last_login AS owner_last_login, CONCAT(updater.first_name, ' ', updater.last_name) AS updater_name FROM documents doc JOIN users owner ON owner.id = doc.created_by JOIN users updater ON updater.id = doc.updated_by WHERE doc.document_id = ?1";
-    public static final String SELECT_DOCUMENTS_BY_NAME_QUERY = "SELECT doc.id, doc.document_id, doc.name, doc.description, doc.uri, doc.icon, doc.size, doc.formatted_size, doc.extension, doc.reference_id, doc.created_at, doc.updated_at, CONCAT(owner.first_name, ' ', owner.last_name) AS owner_name, owner.email AS owner_email, owner.phone AS owner_phone, owner.last_login AS owner_last_login, CONCAT(updater.first_name, ' ', updater.last_name) AS updater_name FROM documents doc JOIN users owner ON owner.id = doc.created_by JOIN users updater ON updater.id = doc.updated_by WHERE doc.name ~* :documentName";
+    public static final String SELECT_DOCUMENTS_QUERY = "SELECT doc.id, doc.document_id, doc.name, doc.description, doc.uri, doc.icon, doc.size, doc.formatted_size, doc.extension, doc.reference_id, doc.checksum, NULLIF(blob.stored_size, -1) AS stored_size, doc.created_at, doc.updated_at, CONCAT(owner.first_name, ' ', owner.last_name) AS owner_name, owner.email AS owner_email, owner.phone AS owner_phone, owner.last_login AS owner_last_login, CONCAT(updater.first_name, ' ', updater.last_name) AS updater_name FROM documents doc JOIN users owner ON owner.id = doc.created_by JOIN users updater ON updater.id = doc.updated_by LEFT JOIN blobs blob ON blob.hash = doc.checksum";
+    public static final String SELECT_DOCUMENT_QUERY = "SELECT doc.id, doc.document_id, doc.name, doc.description, doc.uri, doc.icon, doc.size, doc.formatted_size, doc.extension, doc.reference_id, doc.checksum, NULLIF(blob.stored_size, -1) AS stored_size, doc.created_at, doc.updated_at, CONCAT(owner.first_name, ' ', owner.last_name) AS owner_name, owner.email AS owner_email, owner.phone AS owner_phone, owner.last_login AS owner_last_login, CONCAT(updater.first_name, ' ', updater.last_name) AS updater_name FROM documents doc JOIN users owner ON owner.id = doc.created_by JOIN users updater ON updater.id = doc.updated_by LEFT JOIN blobs blob ON blob.hash = doc.checksum WHERE doc.document_id = ?1";
+    public static final String SELECT_DOCUMENTS_BY_NAME_QUERY = SELECT_DOCUMENTS_QUERY + " WHERE doc.name ILIKE :pattern ESCAPE '\\'";
+    public static final String COUNT_DOCUMENTS_BY_NAME_QUERY = "SELECT COUNT(*) FROM documents doc WHERE doc.name ILIKE :pattern ESCAPE '\\'";
+    public static final String SELECT_DOCUMENTS_BY_SIMILAR_NAME_QUERY = SELECT_DOCUMENTS_QUERY + " WHERE :name <% doc.name ORDER BY word_similarity(:name, doc.name) DESC, doc.name";
+    public static final String COUNT_DOCUMENTS_BY_SIMILAR_NAME_QUERY = "SELECT COUNT(*) FROM documents doc WHERE :name <% doc.name";
 }
@@ -1,9 +1,8 @@
 package project.brianle.securestorage.controller;
 
 import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
-import org.springframework.core.io.Resource;
-import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
@@ -19,14 +18,18 @@ import io.swagger.v3.oas.annotations.tags.Tag;
 import project.brianle.securestorage.domain.Response;
 import project.brianle.securestorage.dto.request.UpdateDocumentRequest;
 import project.brianle.securestorage.dto.response.UserResponse;
+import project.brianle.securestorage.enumeration.SearchMode;
+import project.brianle.securestorage.service.DocumentSearchService;
 import project.brianle.securestorage.service.DocumentService;
 
 import java.io.IOException;
 import java.net.URI;
-import java.nio.file.Files;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 
+import static java.util.Collections.emptyMap;
+import static project.brianle.securestorage.utils.DownloadUtils.writeDocument;
 import static project.brianle.securestorage.utils.RequestUtils.getResponse;
 
 
@@ -36,19 +39,38 @@ import static project.brianle.securestorage.utils.RequestUtils.getResponse;
 @Tag(name = "Document Management", description = "APIs for managing document operations including upload, download, and search")
 public class DocumentController {
     private final DocumentService documentService;
+    private final DocumentSearchService documentSearchService;
 
     @Operation(summary = "Upload documents", 
                description = "Upload one or multiple documents")
     @ApiResponses(value = {
-        @ApiResponse(responseCode = "201", description = "Documents uploaded successfully"),
-        @ApiResponse(responseCode = "400", description = "Invalid file format"),
+        @ApiResponse(responseCode = "201", description = "Documents uploaded successfully, failed files are listed under failures"),
+        @ApiResponse(responseCode = "400", description = "No document could be uploaded"),
         @ApiResponse(responseCode = "403", description = "Unauthorized access")
     })
     @PostMapping("/upload")
     @PreAuthorize("hasAnyAuthority('document:update') or hasAnyRole('ADMIN', 'SUPER_ADMIN')")
     public ResponseEntity<Response> saveDocument(@AuthenticationPrincipal UserResponse user, @RequestParam("files") List<MultipartFile> documents, HttpServletRequest request) {
-        var newDocument = documentService.saveDocuments(user.getUserId(), documents);
-        return ResponseEntity.created(URI.create("")).body(getResponse(request, Map.of("documents", newDocument), "Document(s) uploaded successfully.", HttpStatus.CREATED));
+        var upload = documentService.saveDocuments(user.getUserId(), documents);
+        if(upload.getDocuments().isEmpty()) {
+            return ResponseEntity.badRequest().body(getResponse(request, Map.of("documents", upload.getDocuments(), "failures", upload.getFailures()), "No document was uploaded.", HttpStatus.BAD_REQUEST));
+        }
+        var message = upload.getFailures().isEmpty() ? "Document(s) uploaded successfully." : String.format("%d of %d document(s) uploaded.", upload.getDocuments().size(), documents.size());
+        return ResponseEntity.created(URI.create("")).body(getResponse(request, Map.of("documents", upload.getDocuments(), "failures", upload.getFailures()), message, HttpStatus.CREATED));
+    }
+
+    @Operation(summary = "Stream upload documents",
+               description = "Upload one or multiple documents as a multipart stream written straight to storage, without temporary files")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "201", description = "Documents uploaded successfully"),
+        @ApiResponse(responseCode = "400", description = "Invalid file format"),
+        @ApiResponse(responseCode = "403", description = "Unauthorized access")
+    })
+    @PostMapping(path = "/upload/stream", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    @PreAuthorize("hasAnyAuthority('document:update') or hasAnyRole('ADMIN', 'SUPER_ADMIN')")
+    public ResponseEntity<Response> streamDocuments(@AuthenticationPrincipal UserResponse user, HttpServletRequest request) {
+        var newDocuments = documentService.streamDocuments(user.getUserId(), request);
+        return ResponseEntity.created(URI.create("")).body(getResponse(request, Map.of("documents", newDocuments), "Document(s) uploaded successfully.", HttpStatus.CREATED));
     }
 
     @Operation(summary = "Get all documents", 
@@ -67,7 +89,7 @@ public class DocumentController {
     }
 
     @Operation(summary = "Search documents", 
-               description = "Search for documents by name")
+               description = "Search for documents by name. The mode is literal, prefix, substring (the default) or fuzzy; the name is matched case-insensitively and never as a pattern")
     @ApiResponses(value = {
         @ApiResponse(responseCode = "200", description = "Documents retrieved successfully"),
         @ApiResponse(responseCode = "403", description = "Unauthorized access")
@@ -77,11 +99,71 @@ public class DocumentController {
     public ResponseEntity<Response> searchDocument(@AuthenticationPrincipal UserResponse user, HttpServletRequest request,
                                                 @RequestParam(value = "page", defaultValue = "0") int page,
                                                 @RequestParam(value = "size", defaultValue = "5") int size,
-                                                @RequestParam(value = "name", defaultValue = "5") String name) {
-        var newDocument = documentService.getDocuments(page, size, name);
+                                                @RequestParam(value = "name", defaultValue = "5") String name,
+                                                @RequestParam(value = "mode", defaultValue = "substring") String mode) {
+        var newDocument = documentService.getDocuments(page, size, name, SearchMode.of(mode));
         return ResponseEntity.ok().body(getResponse(request, Map.of("documents", newDocument), "Document(s) retrieved successfully.", HttpStatus.OK));
     }
 
+    @Operation(summary = "Search document content",
+               description = "Search the name, description and text of documents. Terms are all required; | means or, - excludes, quotes match a phrase and a trailing * a prefix")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Documents retrieved successfully"),
+        @ApiResponse(responseCode = "403", description = "Unauthorized access")
+    })
+    @GetMapping("/search/content")
+    @PreAuthorize("hasAnyAuthority('document:read') or hasAnyRole('ADMIN', 'SUPER_ADMIN')")
+    public ResponseEntity<Response> searchDocumentContent(@AuthenticationPrincipal UserResponse user, HttpServletRequest request,
+                                                @RequestParam(value = "page", defaultValue = "0") int page,
+                                                @RequestParam(value = "size", defaultValue = "5") int size,
+                                                @RequestParam(value = "query") String query) {
+        var documents = documentSearchService.search(query, page, size);
+        return ResponseEntity.ok().body(getResponse(request, Map.of("documents", documents), "Document(s) retrieved successfully.", HttpStatus.OK));
+    }
+
+    @Operation(summary = "Highlight document content",
+               description = "Show the passages of one document's text that match a content search, with the matches marked with <mark>. Empty for documents too large to highlight")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Highlight retrieved successfully"),
+        @ApiResponse(responseCode = "403", description = "Unauthorized access")
+    })
+    @GetMapping("/search/content/{documentId}/highlight")
+    @PreAuthorize("hasAnyAuthority('document:read') or hasAnyRole('ADMIN', 'SUPER_ADMIN')")
+    public ResponseEntity<Response> highlightDocumentContent(@AuthenticationPrincipal UserResponse user, HttpServletRequest request,
+                                                @PathVariable("documentId") String documentId,
+                                                @RequestParam(value = "query") String query) {
+        var highlight = documentSearchService.highlight(documentId, query);
+        return ResponseEntity.ok().body(getResponse(request, Map.of("highlight", Objects.requireNonNullElse(highlight, "")), "Highlight retrieved successfully.", HttpStatus.OK));
+    }
+
+    @Operation(summary = "Suggest document names",
+               description = "Complete a document name from its first characters, case-insensitively. The names shared by the most documents come first, then alphabetical order")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Suggestions retrieved successfully"),
+        @ApiResponse(responseCode = "403", description = "Unauthorized access")
+    })
+    @GetMapping("/suggest")
+    @PreAuthorize("hasAnyAuthority('document:read') or hasAnyRole('ADMIN', 'SUPER_ADMIN')")
+    public ResponseEntity<Response> suggestDocuments(@AuthenticationPrincipal UserResponse user, HttpServletRequest request,
+                                                @RequestParam(value = "prefix", defaultValue = "") String prefix,
+                                                @RequestParam(value = "limit", defaultValue = "10") int limit) {
+        var suggestions = documentSearchService.suggest(prefix, limit);
+        return ResponseEntity.ok().body(getResponse(request, Map.of("suggestions", suggestions), "Suggestion(s) retrieved successfully.", HttpStatus.OK));
+    }
+
+    @Operation(summary = "Get storage usage",
+               description = "Report the size of all documents as uploaded against the space they take in storage after deduplication, compression and encryption")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Storage usage retrieved successfully"),
+        @ApiResponse(responseCode = "403", description = "Unauthorized access")
+    })
+    @GetMapping("/storage")
+    @PreAuthorize("hasAnyRole('ADMIN', 'SUPER_ADMIN')")
+    public ResponseEntity<Response> getStorageStats(@AuthenticationPrincipal UserResponse user, HttpServletRequest request) {
+        var stats = documentService.getStorageStats();
+        return ResponseEntity.ok().body(getResponse(request, Map.of("storage", stats), "Storage usage retrieved successfully.", HttpStatus.OK));
+    }
+
     @Operation(summary = "Get document by ID", 
                description = "Retrieve a document by its unique ID")
     @ApiResponses(value = {
@@ -108,21 +190,47 @@ public class DocumentController {
         return ResponseEntity.ok().body(getResponse(request, Map.of("documents", updateDocument), "Document updated successfully.", HttpStatus.OK));
     }
 
-    @Operation(summary = "Download document", 
-               description = "Download a document by its name")
+    @Operation(summary = "Delete document",
+               description = "Delete a document by its unique ID")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Document deleted successfully"),
+        @ApiResponse(responseCode = "403", description = "Unauthorized access")
+    })
+    @DeleteMapping("/{documentId}")
+    @PreAuthorize("hasAnyAuthority('document:delete') or hasAnyRole('ADMIN', 'SUPER_ADMIN')")
+    public ResponseEntity<Response> deleteDocument(@AuthenticationPrincipal UserResponse user, @PathVariable("documentId") String documentId, HttpServletRequest request) {
+        documentService.deleteDocument(documentId);
+        return ResponseEntity.ok().body(getResponse(request, emptyMap(), "Document deleted successfully.", HttpStatus.OK));
+    }
+
+    @Operation(summary = "Download document",
+               description = "Download a document by its unique ID")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Document downloaded successfully"),
+        @ApiResponse(responseCode = "206", description = "Requested byte ranges of the document"),
+        @ApiResponse(responseCode = "304", description = "Document not modified since the cached copy"),
+        @ApiResponse(responseCode = "404", description = "Document not found"),
+        @ApiResponse(responseCode = "416", description = "Requested range not satisfiable"),
+        @ApiResponse(responseCode = "403", description = "Unauthorized access")
+    })
+    @GetMapping("/{documentId}/download")
+    @PreAuthorize("hasAnyAuthority('document:read') or hasAnyRole('ADMIN', 'SUPER_ADMIN')")
+    public void downloadDocument(@AuthenticationPrincipal UserResponse user, @PathVariable("documentId") String documentId, HttpServletRequest request, HttpServletResponse response) throws IOException {
+        writeDocument(documentService.getDocumentFile(documentId), request, response);
+    }
+
+    @Operation(summary = "Download document by name",
+               description = "Download the most recently updated document with the given name. Deprecated: names are not unique, download by ID instead",
+               deprecated = true)
     @ApiResponses(value = {
         @ApiResponse(responseCode = "200", description = "Document downloaded successfully"),
         @ApiResponse(responseCode = "404", description = "Document not found"),
         @ApiResponse(responseCode = "403", description = "Unauthorized access")
     })
+    @Deprecated
     @GetMapping("/download/{documentName}")
     @PreAuthorize("hasAnyAuthority('document:read') or hasAnyRole('ADMIN', 'SUPER_ADMIN')")
-    public ResponseEntity<Resource> downloadDocument(@AuthenticationPrincipal UserResponse user, @PathVariable("documentName") String documentName) throws IOException {
-        var resource = documentService.getResource(documentName);
-        var httpHeaders = new HttpHeaders();
-        httpHeaders.add("File-Name", documentName);
-        httpHeaders.add(HttpHeaders.CONTENT_DISPOSITION, "attachment;File-Name=" + resource.getFilename());
-        return ResponseEntity.ok().contentType(MediaType.parseMediaType(Files.probeContentType(resource.getFile().toPath())))
-                .headers(httpHeaders).body(resource);
+    public void downloadDocumentByName(@AuthenticationPrincipal UserResponse user, @PathVariable("documentName") String documentName, HttpServletRequest request, HttpServletResponse response) throws IOException {
+        writeDocument(documentService.getDocumentFileByName(documentName), request, response);
     }
 }
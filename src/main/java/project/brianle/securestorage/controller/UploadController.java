@@ -0,0 +1,102 @@
+package project.brianle.securestorage.controller;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.*;
+import project.brianle.securestorage.domain.Response;
+import project.brianle.securestorage.dto.request.UploadSessionRequest;
+import project.brianle.securestorage.dto.response.UserResponse;
+import project.brianle.securestorage.service.UploadService;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.Map;
+
+import static java.util.Collections.emptyMap;
+import static project.brianle.securestorage.utils.RequestUtils.getResponse;
+
+@RestController
+@RequiredArgsConstructor
+@RequestMapping(path = {"/documents/uploads"})
+@Tag(name = "Resumable Uploads", description = "APIs for uploading large documents in chunks that can be retried and resumed")
+public class UploadController {
+    private final UploadService uploadService;
+
+    @Operation(summary = "Start upload",
+               description = "Create an upload session and get the chunk size and number of chunks to send")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "201", description = "Upload session created"),
+        @ApiResponse(responseCode = "400", description = "Invalid file name or size"),
+        @ApiResponse(responseCode = "403", description = "Unauthorized access")
+    })
+    @PostMapping
+    @PreAuthorize("hasAnyAuthority('document:update') or hasAnyRole('ADMIN', 'SUPER_ADMIN')")
+    public ResponseEntity<Response> createUpload(@AuthenticationPrincipal UserResponse user, @RequestBody @Valid UploadSessionRequest uploadSessionRequest, HttpServletRequest request) {
+        var upload = uploadService.createUpload(user.getUserId(), uploadSessionRequest.getName(), uploadSessionRequest.getSize());
+        return ResponseEntity.created(URI.create("")).body(getResponse(request, Map.of("upload", upload), "Upload started.", HttpStatus.CREATED));
+    }
+
+    @Operation(summary = "Upload chunk",
+               description = "Send one chunk of the file as the raw request body; chunks can be sent in any order, in parallel and more than once")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Chunk stored"),
+        @ApiResponse(responseCode = "400", description = "Chunk out of range or of the wrong length"),
+        @ApiResponse(responseCode = "403", description = "Unauthorized access")
+    })
+    @PutMapping(path = "/{uploadId}/chunks/{index}", consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    @PreAuthorize("hasAnyAuthority('document:update') or hasAnyRole('ADMIN', 'SUPER_ADMIN')")
+    public ResponseEntity<Response> writeChunk(@AuthenticationPrincipal UserResponse user, @PathVariable("uploadId") String uploadId, @PathVariable("index") int index, HttpServletRequest request) throws IOException {
+        var upload = uploadService.writeChunk(user.getUserId(), uploadId, index, request.getInputStream());
+        return ResponseEntity.ok().body(getResponse(request, Map.of("upload", upload), "Chunk uploaded.", HttpStatus.OK));
+    }
+
+    @Operation(summary = "Get upload",
+               description = "Get the upload session with the chunks received so far")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Upload session retrieved"),
+        @ApiResponse(responseCode = "403", description = "Unauthorized access")
+    })
+    @GetMapping("/{uploadId}")
+    @PreAuthorize("hasAnyAuthority('document:update') or hasAnyRole('ADMIN', 'SUPER_ADMIN')")
+    public ResponseEntity<Response> getUpload(@AuthenticationPrincipal UserResponse user, @PathVariable("uploadId") String uploadId, HttpServletRequest request) {
+        var upload = uploadService.getUpload(user.getUserId(), uploadId);
+        return ResponseEntity.ok().body(getResponse(request, Map.of("upload", upload), "Upload retrieved.", HttpStatus.OK));
+    }
+
+    @Operation(summary = "Commit upload",
+               description = "Finish an upload whose chunks have all been received and create the document")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "201", description = "Document uploaded successfully"),
+        @ApiResponse(responseCode = "400", description = "Upload is incomplete"),
+        @ApiResponse(responseCode = "403", description = "Unauthorized access")
+    })
+    @PostMapping("/{uploadId}/commit")
+    @PreAuthorize("hasAnyAuthority('document:update') or hasAnyRole('ADMIN', 'SUPER_ADMIN')")
+    public ResponseEntity<Response> commitUpload(@AuthenticationPrincipal UserResponse user, @PathVariable("uploadId") String uploadId, HttpServletRequest request) {
+        var document = uploadService.commitUpload(user.getUserId(), uploadId);
+        return ResponseEntity.created(URI.create("")).body(getResponse(request, Map.of("documents", document), "Document uploaded successfully.", HttpStatus.CREATED));
+    }
+
+    @Operation(summary = "Abort upload",
+               description = "Cancel an upload and discard the chunks received so far")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Upload aborted"),
+        @ApiResponse(responseCode = "403", description = "Unauthorized access")
+    })
+    @DeleteMapping("/{uploadId}")
+    @PreAuthorize("hasAnyAuthority('document:update') or hasAnyRole('ADMIN', 'SUPER_ADMIN')")
+    public ResponseEntity<Response> abortUpload(@AuthenticationPrincipal UserResponse user, @PathVariable("uploadId") String uploadId, HttpServletRequest request) {
+        uploadService.abortUpload(user.getUserId(), uploadId);
+        return ResponseEntity.ok().body(getResponse(request, emptyMap(), "Upload aborted.", HttpStatus.OK));
+    }
+}
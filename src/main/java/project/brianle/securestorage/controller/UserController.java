@@ -23,11 +23,10 @@ import project.brianle.securestorage.enumeration.AccountInfoProperties;
 import project.brianle.securestorage.handler.CustomLogoutHandler;
 import project.brianle.securestorage.service.JwtService;
 import project.brianle.securestorage.service.UserService;
+import project.brianle.securestorage.storage.PhotoStore;
 
 import java.io.IOException;
 import java.net.URI;
-import java.nio.file.Files;
-import java.nio.file.Paths;
 import java.util.Map;
 import java.util.concurrent.TimeUnit;
 
@@ -36,7 +35,6 @@ import static java.util.Map.of;
 import static org.springframework.http.HttpStatus.OK;
 import static org.springframework.http.MediaType.IMAGE_JPEG_VALUE;
 import static org.springframework.http.MediaType.IMAGE_PNG_VALUE;
-import static project.brianle.securestorage.constant.Constants.FILE_STORAGE;
 import static project.brianle.securestorage.enumeration.TokenType.ACCESS;
 import static project.brianle.securestorage.enumeration.TokenType.REFRESH;
 import static project.brianle.securestorage.utils.RequestUtils.getResponse;
@@ -49,6 +47,7 @@ public class UserController {
     private final UserService userService;
     private final JwtService jwtService;
     private final CustomLogoutHandler logoutHandler;
+    private final PhotoStore photoStore;
 
     @Operation(summary = "Register new user", 
                description = "Creates a new user account and sends verification email")
@@ -293,7 +292,7 @@ public class UserController {
     })
     @GetMapping(path = "/image/{filename}", produces = { IMAGE_PNG_VALUE, IMAGE_JPEG_VALUE })
     public byte[] getPhoto(@PathVariable("filename") String filename) throws IOException{
-        return Files.readAllBytes(Paths.get(FILE_STORAGE + filename));
+        return photoStore.read(filename);
     }
 
     @Operation(summary = "Logout user", 
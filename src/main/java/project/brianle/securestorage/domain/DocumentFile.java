@@ -0,0 +1,29 @@
+package project.brianle.securestorage.domain;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.Optional;
+
+/**
+ * A stored document ready to be sent. {@code path} is set when the content is a plain local file that can be
+ * transferred without copying; otherwise the content is read through {@code reader}. {@code gzip} offers the
+ * content already gzip-encoded when it is stored that way.
+ */
+public record DocumentFile(String name, Path path, String checksum, long size, Instant lastModified, Reader reader, GzipReader gzip) {
+
+    public DocumentFile(String name, Path path, String checksum, long size, Instant lastModified) {
+        this(name, path, checksum, size, lastModified, null, null);
+    }
+
+    @FunctionalInterface
+    public interface Reader {
+        InputStream open(long offset, long length) throws IOException;
+    }
+
+    @FunctionalInterface
+    public interface GzipReader {
+        Optional<EncodedContent> open() throws IOException;
+    }
+}
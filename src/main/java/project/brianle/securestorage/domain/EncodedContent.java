@@ -0,0 +1,5 @@
+package project.brianle.securestorage.domain;
+
+import java.io.InputStream;
+
+public record EncodedContent(long size, InputStream content) {}
@@ -0,0 +1,3 @@
+package project.brianle.securestorage.domain;
+
+public record IndexedDocument(String documentId, String checksum, String name, String description, String extension, long size, String content) {}
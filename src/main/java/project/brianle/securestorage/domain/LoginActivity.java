@@ -0,0 +1,10 @@
+package project.brianle.securestorage.domain;
+
+import java.time.LocalDateTime;
+
+public record LoginActivity(Long id, String userId, String email, int loginAttempts, boolean accountNonLocked, LocalDateTime lastLogin) {
+    //a later failed attempt must not drop the last successful login that is still waiting to be written
+    public LoginActivity mergeWith(LoginActivity next) {
+        return next.lastLogin() != null ? next : new LoginActivity(next.id(), next.userId(), next.email(), next.loginAttempts(), next.accountNonLocked(), lastLogin);
+    }
+}
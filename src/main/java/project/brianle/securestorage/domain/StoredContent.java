@@ -0,0 +1,3 @@
+package project.brianle.securestorage.domain;
+
+public record StoredContent(long size, String checksum) {}
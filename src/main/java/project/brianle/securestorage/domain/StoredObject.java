@@ -0,0 +1,5 @@
+package project.brianle.securestorage.domain;
+
+import java.time.Instant;
+
+public record StoredObject(long size, Instant lastModified) {}
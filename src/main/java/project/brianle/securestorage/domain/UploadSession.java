@@ -0,0 +1,159 @@
+package project.brianle.securestorage.domain;
+
+import lombok.Getter;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Properties;
+import java.util.stream.IntStream;
+
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+
+/**
+ * State of one resumable upload: the preallocated file chunks are written into and which chunks have arrived.
+ * Chunk bookkeeping is synchronized on the session; the chunk bytes themselves are written without holding it.
+ * The state is kept in a file next to the upload's, so an upload survives a restart.
+ */
+@Getter
+public class UploadSession {
+    private static final String STATE_SUFFIX = ".upload";
+    private final String uploadId;
+    private final String userId;
+    private final String name;
+    private final long size;
+    private final long chunkSize;
+    private final int chunkCount;
+    private final Path file;
+    private final BitSet received;
+    private volatile Instant lastActivity;
+    private boolean committing;
+    private int writesInFlight;
+
+    public UploadSession(String uploadId, String userId, String name, long size, long chunkSize, Path file) {
+        this(uploadId, userId, name, size, chunkSize, file, new BitSet(), Instant.now());
+    }
+
+    /**
+     * Restores a session from its {@link #stateFile}.
+     */
+    public UploadSession(Path stateFile) throws IOException {
+        var state = new Properties();
+        try(var reader = Files.newBufferedReader(stateFile)) {
+            state.load(reader);
+        }
+        var fileName = stateFile.getFileName().toString();
+        this.uploadId = required(state, "uploadId");
+        this.userId = required(state, "userId");
+        this.name = required(state, "name");
+        this.size = Long.parseLong(required(state, "size"));
+        this.chunkSize = Long.parseLong(required(state, "chunkSize"));
+        this.chunkCount = (int) ((size + chunkSize - 1) / chunkSize);
+        this.file = stateFile.resolveSibling(fileName.substring(0, fileName.length() - STATE_SUFFIX.length()));
+        this.received = BitSet.valueOf(Base64.getDecoder().decode(required(state, "received")));
+        this.lastActivity = Instant.parse(required(state, "lastActivity"));
+        if(size <= 0 || chunkSize <= 0 || received.length() > chunkCount) throw new IOException("Invalid upload state");
+    }
+
+    private UploadSession(String uploadId, String userId, String name, long size, long chunkSize, Path file, BitSet received, Instant lastActivity) {
+        this.uploadId = uploadId;
+        this.userId = userId;
+        this.name = name;
+        this.size = size;
+        this.chunkSize = chunkSize;
+        this.chunkCount = (int) ((size + chunkSize - 1) / chunkSize);
+        this.file = file;
+        this.received = received;
+        this.lastActivity = lastActivity;
+    }
+
+    public static boolean isStateFile(Path path) {
+        return path.getFileName().toString().endsWith(STATE_SUFFIX);
+    }
+
+    public Path stateFile() {
+        return file.resolveSibling(file.getFileName() + STATE_SUFFIX);
+    }
+
+    /**
+     * Replaces the state file with the current state. Holding the session's lock keeps an older state from
+     * overwriting a newer one when chunks finish together.
+     */
+    public synchronized void saveState() throws IOException {
+        var state = new Properties();
+        state.setProperty("uploadId", uploadId);
+        state.setProperty("userId", userId);
+        state.setProperty("name", name);
+        state.setProperty("size", String.valueOf(size));
+        state.setProperty("chunkSize", String.valueOf(chunkSize));
+        state.setProperty("received", Base64.getEncoder().encodeToString(received.toByteArray()));
+        state.setProperty("lastActivity", lastActivity.toString());
+        var stateFile = stateFile();
+        var next = stateFile.resolveSibling(stateFile.getFileName() + ".next");
+        try(var writer = Files.newBufferedWriter(next)) {
+            state.store(writer, null);
+        }
+        Files.move(next, stateFile, REPLACE_EXISTING, ATOMIC_MOVE);
+    }
+
+    private static String required(Properties state, String key) throws IOException {
+        var value = state.getProperty(key);
+        if(value == null) throw new IOException(String.format("Upload state is missing %s", key));
+        return value;
+    }
+
+    public long offset(int index) {
+        return index * chunkSize;
+    }
+
+    public long length(int index) {
+        return Math.min(chunkSize, size - offset(index));
+    }
+
+    public void touch() {
+        lastActivity = Instant.now();
+    }
+
+    /**
+     * Registers a chunk write, refused once the session is committing.
+     */
+    public synchronized boolean beginWrite() {
+        if(committing) { return false; }
+        writesInFlight++;
+        touch();
+        return true;
+    }
+
+    public synchronized void endWrite(int index, boolean written) {
+        writesInFlight--;
+        if(written) { received.set(index); }
+        touch();
+    }
+
+    public synchronized List<Integer> receivedChunks() {
+        return received.stream().boxed().toList();
+    }
+
+    public synchronized List<Integer> missingChunks() {
+        return IntStream.range(0, chunkCount).filter(index -> !received.get(index)).boxed().toList();
+    }
+
+    /**
+     * Claims the session for commit once every chunk is in and no chunk is still being written;
+     * later chunk writes are refused.
+     */
+    public synchronized boolean startCommit() {
+        if(committing || writesInFlight > 0 || received.cardinality() != chunkCount) { return false; }
+        committing = true;
+        return true;
+    }
+
+    public synchronized void cancelCommit() {
+        committing = false;
+    }
+}
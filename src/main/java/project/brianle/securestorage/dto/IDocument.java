@@ -28,6 +28,16 @@ public interface IDocument {
     @JsonProperty("referenceId")
     String getReference_Id();
     void setReference_Id(String referenceId);
+    String getChecksum();
+    void setChecksum(String checksum);
+    @JsonProperty("storedSize")
+    Long getStored_Size();
+    void setStored_Size(Long storedSize);
+    //stored bytes per uploaded byte; shared content counts in full for every document that references it
+    @JsonProperty("storageRatio")
+    default Double getStorage_Ratio() {
+        return getStored_Size() == null || getSize() == 0 ? null : (double) getStored_Size() / getSize();
+    }
     @JsonProperty("createdAt")
     LocalDateTime getCreated_At();
     void setCreated_At(LocalDateTime createdAt);
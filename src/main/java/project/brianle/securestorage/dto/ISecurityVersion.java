@@ -0,0 +1,6 @@
+package project.brianle.securestorage.dto;
+
+public interface ISecurityVersion {
+    String getUserId();
+    long getSecurityVersion();
+}
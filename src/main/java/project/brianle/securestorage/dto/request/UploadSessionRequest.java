@@ -0,0 +1,17 @@
+package project.brianle.securestorage.dto.request;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Positive;
+import lombok.Getter;
+import lombok.Setter;
+
+@Getter
+@Setter
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class UploadSessionRequest {
+    @NotEmpty(message = "Name cannot be empty or null")
+    private String name;
+    @Positive(message = "Size must be greater than zero")
+    private long size;
+}
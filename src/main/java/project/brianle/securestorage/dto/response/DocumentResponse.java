@@ -20,6 +20,7 @@ public class DocumentResponse {
     private String icon;
     private String extension;
     private String referenceId;
+    private String checksum;
     private LocalDateTime createdAt;
     private LocalDateTime updatedAt;
     private String ownerName;
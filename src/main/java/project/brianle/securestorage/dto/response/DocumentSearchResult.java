@@ -0,0 +1,17 @@
+package project.brianle.securestorage.dto.response;
+
+import lombok.*;
+
+@Getter
+@Setter
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class DocumentSearchResult {
+    private String documentId;
+    private String name;
+    private String description;
+    private String extension;
+    private long size;
+    private float score;
+}
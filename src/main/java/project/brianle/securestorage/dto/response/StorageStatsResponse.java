@@ -0,0 +1,29 @@
+package project.brianle.securestorage.dto.response;
+
+import lombok.*;
+
+/**
+ * Space taken by documents: {@code logicalSize} as uploaded, {@code contentSize} once identical content is
+ * stored once, and {@code storedSize} as it sits in storage after compression and encryption. Only blobs whose
+ * stored size has been measured count towards the blob figures.
+ */
+@Getter
+@Setter
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class StorageStatsResponse {
+    private long documents;
+    private long logicalSize;
+    private long blobs;
+    private long contentSize;
+    private long storedSize;
+
+    public double getCompressionRatio() {
+        return contentSize == 0 ? 1 : (double) storedSize / contentSize;
+    }
+
+    public double getStorageRatio() {
+        return logicalSize == 0 ? 1 : (double) storedSize / logicalSize;
+    }
+}
@@ -0,0 +1,24 @@
+package project.brianle.securestorage.dto.response;
+
+import lombok.*;
+
+import java.util.List;
+
+@Getter
+@Setter
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class UploadResponse {
+    private List<DocumentResponse> documents;
+    private List<UploadFailure> failures;
+
+    @Getter
+    @Setter
+    @AllArgsConstructor
+    @NoArgsConstructor
+    public static class UploadFailure {
+        private String name;
+        private String reason;
+    }
+}
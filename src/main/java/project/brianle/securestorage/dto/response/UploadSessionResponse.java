@@ -0,0 +1,19 @@
+package project.brianle.securestorage.dto.response;
+
+import lombok.*;
+
+import java.util.List;
+
+@Getter
+@Setter
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class UploadSessionResponse {
+    private String uploadId;
+    private String name;
+    private long size;
+    private long chunkSize;
+    private int chunkCount;
+    private List<Integer> receivedChunks;
+}
@@ -25,4 +25,5 @@ public class UserResponse {
     private boolean credentialsNonExpired;
     private boolean enabled;
     private boolean mfa;
+    private long securityVersion;
 }
@@ -7,11 +7,13 @@ import lombok.Getter;
 import lombok.Setter;
 import org.springframework.data.annotation.CreatedDate;
 import org.springframework.data.jpa.domain.support.AuditingEntityListener;
-import org.springframework.util.AlternativeJdkIdGenerator;
 import project.brianle.securestorage.exceptions.CustomException;
+import project.brianle.securestorage.utils.TimeOrderedIdGenerator;
 
 import java.time.LocalDateTime;
 
+import static project.brianle.securestorage.constant.Constants.ID_BLOCK_SIZE;
+
 @Getter
 @Setter
 @MappedSuperclass
@@ -19,11 +21,11 @@ import java.time.LocalDateTime;
 @JsonIgnoreProperties(value = {"createdAt", "updatedAt"}, allowGetters = true)
 public abstract class Auditable {
     @Id
-    @SequenceGenerator(name = "primary_key_seq", sequenceName = "primary_key_seq", allocationSize = 1)
+    @SequenceGenerator(name = "primary_key_seq", sequenceName = "primary_key_seq", allocationSize = ID_BLOCK_SIZE)
     @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "primary_key_seq")
     @Column(name = "id", updatable = false)
     private Long id;
-    private String referenceId = new AlternativeJdkIdGenerator().generateId().toString();
+    private String referenceId;
     @NotNull
     @Column(name = "created_by", nullable = false)
     private Long createdBy;
@@ -43,6 +45,8 @@ public abstract class Auditable {
     public void beforePersist(){
         Long userId = 0L; //RequestContext.getUserId();
         if(userId == null){ throw new CustomException("Cannot persist entity without user ID"); }
+        //generated here rather than in a field initializer so entities hydrated from query results do not pay for it
+        if(referenceId == null){ setReferenceId(TimeOrderedIdGenerator.INSTANCE.generateId().toString()); }
         setCreatedBy(userId);
         setCreatedAt(LocalDateTime.now());
         setUpdatedBy(userId);
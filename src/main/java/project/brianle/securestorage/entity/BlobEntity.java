@@ -0,0 +1,31 @@
+package project.brianle.securestorage.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Stored document content, keyed by its SHA-256 hash. Documents point at a blob through their checksum and
+ * {@code refCount} tracks how many do; identical uploads share one blob. Rows are written by
+ * {@link project.brianle.securestorage.storage.BlobStore} with atomic SQL, never through the persistence context.
+ * {@code storedSize} is null until measured and -1 when the content could not be found to measure.
+ */
+@Getter
+@Setter
+@ToString
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "blobs")
+public class BlobEntity {
+    @Id
+    @Column(length = 64, updatable = false)
+    private String hash;
+    private long size;
+    private int refCount;
+    private Long storedSize;
+    @Column(nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+}
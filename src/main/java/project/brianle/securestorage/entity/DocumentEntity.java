@@ -23,6 +23,8 @@ public class DocumentEntity extends Auditable{
     private String formattedSize;
     private String icon;
     private String extension;
+    @Column(length = 64)
+    private String checksum;
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(
             name = "user_id",
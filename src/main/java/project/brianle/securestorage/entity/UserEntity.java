@@ -32,6 +32,8 @@ public class UserEntity extends Auditable{
     private boolean accountNonLocked;
     private boolean enabled;
     private boolean mfa;
+    @Column(nullable = false, columnDefinition = "bigint default 0") //bumped whenever issued tokens must stop being trusted
+    private long securityVersion;
     @JsonIgnore
     private String qrCodeSecret;
     @Column(columnDefinition = "text") //because by default, VARCHAR columns are limited in size (255) use "TEXT" for larger storage
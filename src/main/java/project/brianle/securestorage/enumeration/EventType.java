@@ -1,5 +1,5 @@
 package project.brianle.securestorage.enumeration;
 
 public enum EventType {
-    REGISTERATION, RESETPASSWORD
+    REGISTERATION, RESETPASSWORD, UPLOAD, UPDATE, DELETE
 }
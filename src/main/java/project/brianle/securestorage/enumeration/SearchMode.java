@@ -0,0 +1,31 @@
+package project.brianle.securestorage.enumeration;
+
+import project.brianle.securestorage.exceptions.CustomException;
+
+import java.util.Locale;
+
+/**
+ * How a document name search matches. The term is always taken literally: LIKE wildcards in it are escaped, and
+ * FUZZY matches on trigram similarity instead of a pattern.
+ */
+public enum SearchMode {
+    LITERAL, PREFIX, SUBSTRING, FUZZY;
+
+    public static SearchMode of(String value) {
+        try {
+            return valueOf(value.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException exception) {
+            throw new CustomException(String.format("Invalid search mode: %s", value));
+        }
+    }
+
+    //a pattern for ILIKE ... ESCAPE '\'
+    public String pattern(String term) {
+        var escaped = term.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+        return switch (this) {
+            case LITERAL -> escaped;
+            case PREFIX -> escaped + "%";
+            case SUBSTRING, FUZZY -> "%" + escaped + "%";
+        };
+    }
+}
@@ -0,0 +1,16 @@
+package project.brianle.securestorage.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.Setter;
+import project.brianle.securestorage.enumeration.EventType;
+
+@Getter
+@Setter
+@AllArgsConstructor
+public class DocumentEvent {
+    private String documentId;
+    private EventType eventType;
+    private String name;
+    private String previousName;
+}
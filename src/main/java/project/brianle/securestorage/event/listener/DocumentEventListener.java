@@ -0,0 +1,50 @@
+package project.brianle.securestorage.event.listener;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import project.brianle.securestorage.event.DocumentEvent;
+import project.brianle.securestorage.search.DocumentNameSuggester;
+import project.brianle.securestorage.service.DocumentSearchService;
+
+/**
+ * Keeps the content index and the name suggestions in step with the documents table. Events are handled only once
+ * the transaction that raised them has committed. Indexing runs off the request thread, so text extraction never
+ * slows an upload down; a suggestion update takes microseconds and is applied right away.
+ */
+@Component
+@RequiredArgsConstructor
+public class DocumentEventListener {
+    private final DocumentSearchService documentSearchService;
+    private final DocumentNameSuggester documentNameSuggester;
+
+    @Async
+    @TransactionalEventListener
+    public void onDocumentEvent(DocumentEvent event) {
+        switch (event.getEventType()) {
+            case UPLOAD, UPDATE -> documentSearchService.index(event.getDocumentId());
+            case DELETE -> documentSearchService.remove(event.getDocumentId());
+            default -> {}
+        }
+    }
+
+    @TransactionalEventListener
+    public void onDocumentNameEvent(DocumentEvent event) {
+        switch (event.getEventType()) {
+            case UPLOAD -> documentNameSuggester.add(event.getName());
+            case UPDATE -> documentNameSuggester.rename(event.getPreviousName(), event.getName());
+            case DELETE -> documentNameSuggester.remove(event.getPreviousName());
+            default -> {}
+        }
+    }
+
+    //catches up on documents changed while the application was down
+    @Async
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        documentSearchService.reconcile();
+    }
+}
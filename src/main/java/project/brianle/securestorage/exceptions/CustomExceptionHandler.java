@@ -32,6 +32,8 @@ import java.sql.SQLIntegrityConstraintViolationException;
 import java.util.stream.Collectors;
 
 import static org.springframework.http.HttpStatus.BAD_REQUEST;
+import static org.springframework.http.HttpStatus.SERVICE_UNAVAILABLE;
+import static project.brianle.securestorage.constant.Constants.RETRY_AFTER_SECONDS;
 
 @RestControllerAdvice
 @RequiredArgsConstructor
@@ -59,6 +61,13 @@ public class CustomExceptionHandler extends ResponseEntityExceptionHandler imple
         return new ResponseEntity<>(RequestUtils.handleErrorResponse(exception.getMessage(), ExceptionUtils.getRootCauseMessage(exception), request, BAD_REQUEST), BAD_REQUEST);
     }
 
+    @ExceptionHandler(ServiceUnavailableException.class)
+    public ResponseEntity<Response> serviceUnavailableException(ServiceUnavailableException exception) {
+        log.error(String.format("ServiceUnavailableException: %s", exception.getMessage()));
+        return ResponseEntity.status(SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, String.valueOf(RETRY_AFTER_SECONDS))
+                .body(RequestUtils.handleErrorResponse(exception.getMessage(), ExceptionUtils.getRootCauseMessage(exception), request, SERVICE_UNAVAILABLE));
+    }
+
     @ExceptionHandler(BadCredentialsException.class)
     public ResponseEntity<Response> badCredentialsException(BadCredentialsException exception) {
         log.error(String.format("CustomException: %s", exception.getMessage()));
@@ -0,0 +1,7 @@
+package project.brianle.securestorage.exceptions;
+
+public class ServiceUnavailableException extends CustomException{
+    public ServiceUnavailableException(String s){
+        super(s);
+    }
+}
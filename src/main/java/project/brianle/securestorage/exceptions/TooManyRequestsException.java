@@ -0,0 +1,13 @@
+package project.brianle.securestorage.exceptions;
+
+import lombok.Getter;
+
+@Getter
+public class TooManyRequestsException extends CustomException{
+    private final long retryAfterSeconds;
+
+    public TooManyRequestsException(String s, long retryAfterSeconds){
+        super(s);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+}
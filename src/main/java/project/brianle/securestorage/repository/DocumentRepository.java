@@ -18,11 +18,16 @@ public interface DocumentRepository extends JpaRepository<DocumentEntity, Long>
     @Query(countQuery = "SELECT COUNT(*) FROM documents", value = SELECT_DOCUMENTS_QUERY, nativeQuery = true)
     Page<IDocument> findDocuments(Pageable pageable);
 
-    @Query(countQuery = "SELECT COUNT(*) FROM documents WHERE name ~* :documentName", value = SELECT_DOCUMENTS_BY_NAME_QUERY, nativeQuery = true)
-    Page<IDocument> findDocumentsByName(@Param("documentName") String documentName, Pageable pageable);
+    @Query(countQuery = COUNT_DOCUMENTS_BY_NAME_QUERY, value = SELECT_DOCUMENTS_BY_NAME_QUERY, nativeQuery = true)
+    Page<IDocument> findDocumentsByName(@Param("pattern") String pattern, Pageable pageable);
+
+    @Query(countQuery = COUNT_DOCUMENTS_BY_SIMILAR_NAME_QUERY, value = SELECT_DOCUMENTS_BY_SIMILAR_NAME_QUERY, nativeQuery = true)
+    Page<IDocument> findDocumentsBySimilarName(@Param("name") String name, Pageable pageable);
 
     @Query(value = SELECT_DOCUMENT_QUERY, nativeQuery = true)
     Optional<IDocument> findDocumentByDocumentId(String documentId);
 
     Optional<DocumentEntity> findByDocumentId(String documentId);
+
+    Optional<DocumentEntity> findFirstByNameOrderByUpdatedAtDesc(String name);
 }
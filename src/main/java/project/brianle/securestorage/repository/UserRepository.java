@@ -1,13 +1,21 @@
 package project.brianle.securestorage.repository;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import project.brianle.securestorage.dto.ISecurityVersion;
 import project.brianle.securestorage.entity.UserEntity;
 
+import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface UserRepository extends JpaRepository<UserEntity, Long> {
     Optional<UserEntity> findByEmailIgnoreCase(String email);
     Optional<UserEntity> findUserByUserId(String userId);
+
+    @Query("SELECT u.userId AS userId, u.securityVersion AS securityVersion FROM UserEntity u WHERE u.updatedAt >= :since")
+    List<ISecurityVersion> findSecurityVersionsUpdatedSince(@Param("since") LocalDateTime since);
 }
@@ -0,0 +1,26 @@
+package project.brianle.securestorage.search;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import static project.brianle.securestorage.constant.Constants.FILE_STORAGE;
+
+/**
+ * Where the content index lives and how much of each document goes into it, bound from {@code search.content}.
+ * Files above {@code max-file-size} are indexed by name only; text beyond {@code max-characters} is dropped.
+ * Files above {@code max-highlight-file-size} are not highlighted, their text would be extracted on request.
+ */
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "search.content")
+public class ContentSearchProperties {
+    private String directory = FILE_STORAGE + "index";
+    private DataSize maxFileSize = DataSize.ofMegabytes(100);
+    private int maxCharacters = 1_000_000;
+    private DataSize maxHighlightFileSize = DataSize.ofMegabytes(10);
+    private int maxPassages = 3;
+}
@@ -0,0 +1,205 @@
+package project.brianle.securestorage.search;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.document.*;
+import org.apache.lucene.index.*;
+import org.apache.lucene.queryparser.simple.SimpleQueryParser;
+import org.apache.lucene.search.*;
+import org.apache.lucene.search.uhighlight.DefaultPassageFormatter;
+import org.apache.lucene.search.uhighlight.UnifiedHighlighter;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+import org.apache.lucene.util.BytesRef;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import project.brianle.securestorage.domain.IndexedDocument;
+import project.brianle.securestorage.dto.response.DocumentSearchResult;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.function.Consumer;
+
+/**
+ * An embedded Lucene index over the name, description and extracted text of every document, kept on local disk.
+ * The text is indexed but never stored: the index sits outside the encrypted blob storage, so keeping the text
+ * would leave a plaintext copy of every document on disk. Results are built from the stored name, description
+ * and size alone, so a search never reads blob storage; {@link #highlight} marks up text the caller extracts
+ * again for one document.
+ * <p>
+ * Writes become searchable on the next refresh, about a second later, and durable on the next commit. Entries
+ * written but not yet committed when the process dies are lost; the startup reconciliation puts them back. The
+ * index belongs to one instance, so every instance builds its own.
+ */
+@Component
+public class DocumentContentIndex implements AutoCloseable {
+    private static final String ID = "id";
+    private static final String CHECKSUM = "checksum";
+    private static final String NAME = "name";
+    private static final String DESCRIPTION = "description";
+    private static final String EXTENSION = "extension";
+    private static final String SIZE = "size";
+    private static final String CONTENT = "content";
+    private static final Set<String> RESULT_FIELDS = Set.of(ID, CHECKSUM, NAME, DESCRIPTION, EXTENSION, SIZE);
+    private static final Map<String, Float> FIELD_WEIGHTS = Map.of(NAME, 3f, DESCRIPTION, 2f, CONTENT, 1f);
+    /**
+     * How deep results can be paged. Lucene collects every hit up to the end of the requested page, so deeper
+     * pages cost memory and time in proportion to their offset.
+     */
+    public static final int MAX_RESULT_WINDOW = 10_000;
+    private final Analyzer analyzer = new StandardAnalyzer();
+    private final Directory directory;
+    private final IndexWriter writer;
+    private final SearcherManager searcherManager;
+    private final int maxCharacters;
+    private final int maxPassages;
+
+    public DocumentContentIndex(ContentSearchProperties properties) throws IOException {
+        this.directory = FSDirectory.open(Path.of(properties.getDirectory()));
+        var openMode = storesContent(directory) ? IndexWriterConfig.OpenMode.CREATE : IndexWriterConfig.OpenMode.CREATE_OR_APPEND;
+        this.writer = new IndexWriter(directory, new IndexWriterConfig(analyzer).setOpenMode(openMode));
+        this.searcherManager = new SearcherManager(writer, null);
+        this.maxCharacters = properties.getMaxCharacters();
+        this.maxPassages = properties.getMaxPassages();
+    }
+
+    /**
+     * Whether the index was written when the text was stored, recognisable by the offsets indexed with it. Such
+     * an index is recreated empty, which drops the stored text, and the startup reconciliation fills it again.
+     */
+    private static boolean storesContent(Directory directory) throws IOException {
+        if(!DirectoryReader.indexExists(directory)) { return false; }
+        try(var reader = DirectoryReader.open(directory)) {
+            var content = FieldInfos.getMergedFieldInfos(reader).fieldInfo(CONTENT);
+            return content != null && content.getIndexOptions() == IndexOptions.DOCS_AND_FREQS_AND_POSITIONS_AND_OFFSETS;
+        }
+    }
+
+    public void put(IndexedDocument document) throws IOException {
+        var entry = new Document();
+        entry.add(new StringField(ID, document.documentId(), Field.Store.YES));
+        entry.add(new SortedDocValuesField(ID, new BytesRef(document.documentId())));
+        entry.add(new StringField(CHECKSUM, Objects.requireNonNullElse(document.checksum(), ""), Field.Store.YES));
+        entry.add(new TextField(NAME, Objects.requireNonNullElse(document.name(), ""), Field.Store.YES));
+        entry.add(new TextField(DESCRIPTION, Objects.requireNonNullElse(document.description(), ""), Field.Store.YES));
+        entry.add(new StoredField(EXTENSION, Objects.requireNonNullElse(document.extension(), "")));
+        entry.add(new StoredField(SIZE, document.size()));
+        entry.add(new TextField(CONTENT, Objects.requireNonNullElse(document.content(), ""), Field.Store.NO));
+        writer.updateDocument(new Term(ID, document.documentId()), entry);
+    }
+
+    public void delete(String documentId) throws IOException {
+        writer.deleteDocuments(new Term(ID, documentId));
+    }
+
+    /**
+     * The subset of {@code documentIds} that is not indexed yet.
+     */
+    public List<String> missing(Collection<String> documentIds) throws IOException {
+        var searcher = searcherManager.acquire();
+        try {
+            var missing = new ArrayList<String>();
+            for(String documentId : documentIds) {
+                if(searcher.count(new TermQuery(new Term(ID, documentId))) == 0) { missing.add(documentId); }
+            }
+            return missing;
+        } finally {
+            searcherManager.release(searcher);
+        }
+    }
+
+    /**
+     * Hands the ids of all indexed documents to {@code consumer}, read from doc values so no stored text is loaded.
+     */
+    public void forEachId(Consumer<String> consumer) throws IOException {
+        var searcher = searcherManager.acquire();
+        try {
+            for(LeafReaderContext leaf : searcher.getIndexReader().leaves()) {
+                var ids = leaf.reader().getSortedDocValues(ID);
+                if(ids == null) { continue; }
+                var live = leaf.reader().getLiveDocs();
+                for(int doc = ids.nextDoc(); doc != DocIdSetIterator.NO_MORE_DOCS; doc = ids.nextDoc()) {
+                    if(live == null || live.get(doc)) { consumer.accept(ids.lookupOrd(ids.ordValue()).utf8ToString()); }
+                }
+            }
+        } finally {
+            searcherManager.release(searcher);
+        }
+    }
+
+    /**
+     * Ranks documents by how well their name, description and text match {@code text}, which uses the simple
+     * query syntax: terms are all required, {@code |} means or, {@code -} excludes, quotes make a phrase and a
+     * trailing {@code *} a prefix. Malformed input is matched as well as it can be rather than rejected.
+     * @throws IllegalArgumentException when the page ends beyond {@link #MAX_RESULT_WINDOW}
+     */
+    public Page<DocumentSearchResult> search(String text, Pageable pageable) throws IOException {
+        long end = pageable.getOffset() + pageable.getPageSize();
+        if(end > MAX_RESULT_WINDOW) { throw new IllegalArgumentException("Only the first " + MAX_RESULT_WINDOW + " results can be paged through"); }
+        var query = parse(text);
+        if(query == null) { return Page.empty(pageable); }
+        var searcher = searcherManager.acquire();
+        try {
+            var hits = searcher.search(query, (int) end);
+            var page = Arrays.copyOfRange(hits.scoreDocs, (int) Math.min(pageable.getOffset(), hits.scoreDocs.length), hits.scoreDocs.length);
+            var storedFields = searcher.storedFields();
+            var results = new ArrayList<DocumentSearchResult>(page.length);
+            for(ScoreDoc hit : page) {
+                var entry = storedFields.document(hit.doc, RESULT_FIELDS);
+                results.add(DocumentSearchResult.builder()
+                        .documentId(entry.get(ID))
+                        .name(entry.get(NAME))
+                        .description(entry.get(DESCRIPTION))
+                        .extension(entry.get(EXTENSION))
+                        .size(entry.getField(SIZE).numericValue().longValue())
+                        .score(hit.score)
+                        .build());
+            }
+            //counting stops at 1000 hits, past that the total is a lower bound
+            return new PageImpl<>(results, pageable, hits.totalHits.value);
+        } finally {
+            searcherManager.release(searcher);
+        }
+    }
+
+    /**
+     * The passages of {@code content} that best match {@code text}, with the matches marked, or null when none do.
+     */
+    public String highlight(String text, String content) throws IOException {
+        var query = parse(text);
+        if(query == null || content == null || content.isEmpty()) { return null; }
+        //the text is not stored, so the highlighter analyzes the text it is given instead of reading offsets
+        var highlighter = UnifiedHighlighter.builderWithoutSearcher(analyzer)
+                .withFormatter(new DefaultPassageFormatter("<mark>", "</mark>", " … ", true))
+                .withMaxLength(maxCharacters)
+                .build();
+        return (String) highlighter.highlightWithoutSearcher(CONTENT, query, content, maxPassages);
+    }
+
+    private Query parse(String text) {
+        var parser = new SimpleQueryParser(analyzer, FIELD_WEIGHTS);
+        parser.setDefaultOperator(BooleanClause.Occur.MUST);
+        return parser.parse(text);
+    }
+
+    @Scheduled(fixedDelayString = "${search.content.refresh-interval:1000}")
+    public void refresh() throws IOException {
+        searcherManager.maybeRefresh();
+    }
+
+    @Scheduled(fixedDelayString = "${search.content.commit-interval:30000}")
+    public void commit() throws IOException {
+        if(writer.hasUncommittedChanges()) { writer.commit(); }
+    }
+
+    @Override
+    public void close() throws IOException {
+        searcherManager.close();
+        writer.close();
+        directory.close();
+    }
+}
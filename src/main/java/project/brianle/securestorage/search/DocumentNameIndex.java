@@ -0,0 +1,42 @@
+package project.brianle.securestorage.search;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Creates the indexes behind document name search, which Hibernate's schema update does not manage. The trigram
+ * GIN index serves ILIKE patterns and the similarity operator alike, so every search mode is an index lookup;
+ * the btree index serves the listing's ORDER BY name and lets a broad search stop at the first page.
+ * <p>
+ * Indexes are built CONCURRENTLY so a first start against a large table does not block uploads. Creating the
+ * extension needs a privileged role; without it substring search still works but falls back to a scan, and fuzzy
+ * search fails until a DBA runs it.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class DocumentNameIndex {
+    private static final String CREATE_EXTENSION = "CREATE EXTENSION IF NOT EXISTS pg_trgm";
+    private static final String CREATE_TRIGRAM_INDEX = "CREATE INDEX CONCURRENTLY IF NOT EXISTS index_documents_name_trgm ON documents USING gin (name gin_trgm_ops)";
+    private static final String CREATE_NAME_INDEX = "CREATE INDEX CONCURRENTLY IF NOT EXISTS index_documents_name ON documents (name)";
+    private final JdbcTemplate jdbcTemplate;
+
+    @PostConstruct
+    public void init() {
+        execute(CREATE_EXTENSION);
+        execute(CREATE_TRIGRAM_INDEX);
+        execute(CREATE_NAME_INDEX);
+    }
+
+    private void execute(String statement) {
+        try {
+            jdbcTemplate.execute(statement);
+        } catch (DataAccessException exception) {
+            log.warn("Unable to prepare document name search ({}): {}", statement, exception.getMostSpecificCause().getMessage());
+        }
+    }
+}
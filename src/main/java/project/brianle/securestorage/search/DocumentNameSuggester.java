@@ -0,0 +1,80 @@
+package project.brianle.securestorage.search;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Name completions served from memory. The trie is loaded before the server accepts requests, streaming the names
+ * through a cursor so the table is never held in memory, and from then on follows uploads, renames and deletes as
+ * they commit. It only sees changes made through this instance; a restart picks up everything else.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class DocumentNameSuggester implements SmartInitializingSingleton {
+    private static final String SELECT_NAMES = "SELECT name FROM documents";
+    private static final int FETCH_SIZE = 10_000;
+    private final NameTrie trie = new NameTrie();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        long start = System.nanoTime();
+        //Postgres only streams through a cursor inside a transaction
+        transactionTemplate.executeWithoutResult(status -> jdbcTemplate.query(connection -> {
+            var statement = connection.prepareStatement(SELECT_NAMES);
+            statement.setFetchSize(FETCH_SIZE);
+            return statement;
+        }, (RowCallbackHandler) resultSet -> add(resultSet.getString(1))));
+        log.info("Loaded {} document name(s) for suggestions in {} ms", trie.size(), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    public void add(String name) {
+        lock.writeLock().lock();
+        try {
+            trie.add(name);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(String name) {
+        lock.writeLock().lock();
+        try {
+            trie.remove(name);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void rename(String previousName, String name) {
+        if(previousName != null && previousName.equals(name)) { return; }
+        lock.writeLock().lock();
+        try {
+            trie.remove(previousName);
+            trie.add(name);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public List<NameTrie.Suggestion> suggest(String prefix, int limit) {
+        lock.readLock().lock();
+        try {
+            return trie.suggest(prefix, limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+}
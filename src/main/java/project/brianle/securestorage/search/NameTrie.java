@@ -0,0 +1,236 @@
+package project.brianle.securestorage.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * A radix trie over names that counts how many times each name was added. Names are stored as they are spelled, and
+ * prefixes are matched case-insensitively, which may lead into more than one branch.
+ * <p>
+ * Runs of single-child nodes are collapsed into one edge label, so there are at most twice as many nodes as
+ * distinct names, and every node remembers the highest count in its subtree. {@link #suggest} uses that to
+ * expand the most promising subtree first and stops after {@code limit} names, so it touches a handful of nodes
+ * however many names share the prefix.
+ * <p>
+ * Not thread-safe; callers synchronize.
+ */
+public class NameTrie {
+    private static final Node[] NO_CHILDREN = {};
+    private final Node root = new Node(new char[0]);
+    private int size;
+
+    public record Suggestion(String name, int count) {}
+
+    private record Candidate(Node node, String path, boolean complete) {
+        int priority() {
+            return complete ? node.count : node.best;
+        }
+    }
+
+    private static final class Node {
+        private char[] label;
+        private Node[] children = NO_CHILDREN;
+        private int count;
+        private int best;
+
+        private Node(char[] label) {
+            this.label = label;
+        }
+    }
+
+    /**
+     * Number of distinct names.
+     */
+    public int size() {
+        return size;
+    }
+
+    public void add(String name) {
+        if(name == null || name.isEmpty()) { return; }
+        var path = new ArrayList<Node>();
+        var node = root;
+        int position = 0;
+        while(true) {
+            path.add(node);
+            if(position == name.length()) { break; }
+            int index = find(node, name.charAt(position));
+            if(index < 0) {
+                var leaf = new Node(name.substring(position).toCharArray());
+                insert(node, -index - 1, leaf);
+                node = leaf;
+                path.add(node);
+                break;
+            }
+            var child = node.children[index];
+            int common = commonPrefix(child.label, name, position, false);
+            if(common < child.label.length) {
+                var middle = new Node(Arrays.copyOf(child.label, common));
+                child.label = Arrays.copyOfRange(child.label, common, child.label.length);
+                middle.children = new Node[] { child };
+                middle.best = child.best;
+                node.children[index] = middle;
+                child = middle;
+            }
+            node = child;
+            position += common;
+        }
+        if(node.count++ == 0) { size++; }
+        updateBest(path);
+    }
+
+    /**
+     * Takes back one {@link #add} of {@code name}.
+     * @return false when the name was not in the trie
+     */
+    public boolean remove(String name) {
+        if(name == null || name.isEmpty()) { return false; }
+        var path = new ArrayList<Node>();
+        var node = root;
+        int position = 0;
+        while(position < name.length()) {
+            path.add(node);
+            int index = find(node, name.charAt(position));
+            if(index < 0) { return false; }
+            node = node.children[index];
+            if(commonPrefix(node.label, name, position, false) < node.label.length) { return false; }
+            position += node.label.length;
+        }
+        if(node.count == 0) { return false; }
+        if(--node.count == 0) {
+            size--;
+            var parent = path.get(path.size() - 1);
+            if(node.children.length == 0) {
+                removeChild(parent, node);
+                if(parent != root && parent.count == 0 && parent.children.length == 1) { merge(parent); }
+            } else if(node.children.length == 1) {
+                merge(node);
+            }
+        }
+        path.add(node);
+        updateBest(path);
+        return true;
+    }
+
+    /**
+     * Up to {@code limit} names starting with {@code prefix}, the most often added first and alphabetically
+     * after that.
+     */
+    public List<Suggestion> suggest(String prefix, int limit) {
+        var suggestions = new ArrayList<Suggestion>(limit);
+        //a subtree's path sorts before every name in it, so ties come out in alphabetical order
+        var candidates = new PriorityQueue<>(Comparator.comparingInt(Candidate::priority).reversed()
+                .thenComparing(Candidate::path, String.CASE_INSENSITIVE_ORDER).thenComparing(Candidate::path).thenComparing(Candidate::complete));
+        seed(root, "", prefix, 0, candidates);
+        while(!candidates.isEmpty() && suggestions.size() < limit) {
+            var candidate = candidates.poll();
+            if(candidate.complete()) {
+                suggestions.add(new Suggestion(candidate.path(), candidate.node().count));
+                continue;
+            }
+            if(candidate.node().count > 0) { candidates.add(new Candidate(candidate.node(), candidate.path(), true)); }
+            for(Node child : candidate.node().children) {
+                candidates.add(new Candidate(child, candidate.path() + new String(child.label), false));
+            }
+        }
+        return suggestions;
+    }
+
+    //queues every subtree whose names start with the rest of the prefix, ignoring case
+    private static void seed(Node node, String path, String prefix, int position, PriorityQueue<Candidate> candidates) {
+        if(position == prefix.length()) {
+            if(node.best > 0) { candidates.add(new Candidate(node, path, false)); }
+            return;
+        }
+        char folded = fold(prefix.charAt(position));
+        for(int index = firstFolded(node, folded); index < node.children.length && fold(node.children[index].label[0]) == folded; index++) {
+            var child = node.children[index];
+            int common = commonPrefix(child.label, prefix, position, true);
+            if(common == child.label.length || position + common == prefix.length()) {
+                seed(child, path + new String(child.label), prefix, Math.min(position + child.label.length, prefix.length()), candidates);
+            }
+        }
+    }
+
+    /**
+     * Binary search over the children, which are sorted by the case-folded first character of their label and
+     * then by the character itself, so the spellings of one letter sit next to each other.
+     */
+    private static int find(Node node, char character) {
+        char folded = fold(character);
+        int low = 0;
+        int high = node.children.length - 1;
+        while(low <= high) {
+            int middle = (low + high) >>> 1;
+            char current = node.children[middle].label[0];
+            int comparison = fold(current) != folded ? Character.compare(fold(current), folded) : Character.compare(current, character);
+            if(comparison < 0) { low = middle + 1; }
+            else if(comparison > 0) { high = middle - 1; }
+            else { return middle; }
+        }
+        return -(low + 1);
+    }
+
+    //the first child whose label starts with any spelling of the folded character
+    private static int firstFolded(Node node, char folded) {
+        int low = 0;
+        int high = node.children.length;
+        while(low < high) {
+            int middle = (low + high) >>> 1;
+            if(fold(node.children[middle].label[0]) < folded) { low = middle + 1; } else { high = middle; }
+        }
+        return low;
+    }
+
+    private static void insert(Node parent, int index, Node child) {
+        var children = new Node[parent.children.length + 1];
+        System.arraycopy(parent.children, 0, children, 0, index);
+        children[index] = child;
+        System.arraycopy(parent.children, index, children, index + 1, parent.children.length - index);
+        parent.children = children;
+    }
+
+    private static void removeChild(Node parent, Node child) {
+        int index = find(parent, child.label[0]);
+        var children = parent.children.length == 1 ? NO_CHILDREN : new Node[parent.children.length - 1];
+        System.arraycopy(parent.children, 0, children, 0, index);
+        System.arraycopy(parent.children, index + 1, children, index, parent.children.length - index - 1);
+        parent.children = children;
+    }
+
+    //folds a node that no longer ends a name into its only child
+    private static void merge(Node node) {
+        var child = node.children[0];
+        var label = Arrays.copyOf(node.label, node.label.length + child.label.length);
+        System.arraycopy(child.label, 0, label, node.label.length, child.label.length);
+        node.label = label;
+        node.children = child.children;
+        node.count = child.count;
+        node.best = child.best;
+    }
+
+    private static void updateBest(List<Node> path) {
+        for(int index = path.size() - 1; index >= 0; index--) {
+            var node = path.get(index);
+            int best = node.count;
+            for(Node child : node.children) { best = Math.max(best, child.best); }
+            node.best = best;
+        }
+    }
+
+    private static int commonPrefix(char[] label, String name, int offset, boolean ignoreCase) {
+        int length = Math.min(label.length, name.length() - offset);
+        for(int index = 0; index < length; index++) {
+            char character = name.charAt(offset + index);
+            if(label[index] != character && (!ignoreCase || fold(label[index]) != fold(character))) { return index; }
+        }
+        return length;
+    }
+
+    //the same folding String.equalsIgnoreCase applies to each character
+    private static char fold(char character) {
+        return Character.toLowerCase(Character.toUpperCase(character));
+    }
+}
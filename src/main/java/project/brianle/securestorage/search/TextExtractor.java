@@ -0,0 +1,34 @@
+package project.brianle.securestorage.search;
+
+import org.apache.tika.Tika;
+import org.apache.tika.exception.TikaException;
+import org.apache.tika.metadata.Metadata;
+import org.apache.tika.metadata.TikaCoreProperties;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Pulls the plain text out of PDFs, Office documents and text files. The type is detected from the content, with
+ * the file name as a hint; anything else yields no text. Output is cut off at {@code max-characters}, so a huge
+ * document costs bounded memory.
+ */
+@Component
+public class TextExtractor {
+    private final Tika tika = new Tika();
+
+    public TextExtractor(ContentSearchProperties properties) {
+        tika.setMaxStringLength(properties.getMaxCharacters());
+    }
+
+    public String extract(InputStream content, String filename) throws IOException {
+        var metadata = new Metadata();
+        metadata.set(TikaCoreProperties.RESOURCE_NAME_KEY, filename);
+        try {
+            return tika.parseToString(content, metadata);
+        } catch (TikaException exception) {
+            throw new IOException("Unable to extract text from " + filename, exception);
+        }
+    }
+}
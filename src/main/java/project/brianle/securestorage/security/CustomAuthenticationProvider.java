@@ -4,7 +4,6 @@ import lombok.RequiredArgsConstructor;
 import org.springframework.security.authentication.*;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.AuthenticationException;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.stereotype.Component;
 import project.brianle.securestorage.domain.CustomUserDetails;
 import project.brianle.securestorage.dto.response.UserResponse;
@@ -17,7 +16,7 @@ import java.util.function.Consumer;
 @RequiredArgsConstructor
 public class CustomAuthenticationProvider implements AuthenticationProvider {
     private final UserService userService;
-    private final BCryptPasswordEncoder encoder;
+    private final PasswordHasher encoder;
 
     @Override
     public Authentication authenticate(Authentication authentication) throws AuthenticationException {
@@ -27,6 +26,8 @@ public class CustomAuthenticationProvider implements AuthenticationProvider {
         CredentialEntity userCredential = userService.getUserCredentialById(user.getId());
 //        if(!user.isCredentialsNonExpired()) {throw new ApiException("Credentials are expired. Please reset your password");}
         CustomUserDetails customerUserDetails = new CustomUserDetails(user, userCredential);
+        //failed attempts are written to the database in batches, so the in-memory counter is the source of truth for lockout
+        if(userService.isLoginLocked(user.getEmail())) { throw new LockedException("Your account is currently locked"); }
         validAccount.accept(customerUserDetails);
         if(encoder.matches(authenticationToken.getPassword(), customerUserDetails.getPassword())){
             return CustomAuthenticationToken.authenticated(user, customerUserDetails.getAuthorities());
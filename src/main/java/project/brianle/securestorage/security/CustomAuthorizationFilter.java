@@ -12,7 +12,6 @@ import org.springframework.security.web.authentication.WebAuthenticationDetailsS
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 import project.brianle.securestorage.domain.RequestContext;
-import project.brianle.securestorage.domain.Token;
 import project.brianle.securestorage.domain.TokenData;
 import project.brianle.securestorage.dto.response.UserResponse;
 import project.brianle.securestorage.enumeration.TokenType;
@@ -23,6 +22,7 @@ import java.io.IOException;
 import java.util.Optional;
 
 import static java.util.Arrays.asList;
+import static java.util.function.Function.identity;
 import static org.springframework.http.HttpMethod.OPTIONS;
 import static project.brianle.securestorage.constant.Constants.PUBLIC_ROUTES;
 
@@ -35,15 +35,15 @@ public class CustomAuthorizationFilter extends OncePerRequestFilter {
     @Override
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain) throws ServletException, IOException {
         try {
-            Optional<String> accessToken = jwtService.extractToken(request, TokenType.ACCESS.getValue());
-            if(accessToken.isPresent() && jwtService.getTokenData(accessToken.get(), TokenData::isValid)){
+            Optional<TokenData> accessToken = jwtService.extractToken(request, TokenType.ACCESS.getValue()).map(this::getTokenData);
+            if(accessToken.isPresent() && accessToken.get().isValid()){
                 SecurityContextHolder.getContext().setAuthentication(getAuthentication(accessToken.get(), request));
-                RequestContext.setUserId(jwtService.getTokenData(accessToken.get(), TokenData::getUser).getId());
+                RequestContext.setUserId(accessToken.get().getUser().getId());
             } else {
-                Optional<String> refreshToken = jwtService.extractToken(request, TokenType.REFRESH.getValue());
-                if(refreshToken.isPresent() && jwtService.getTokenData(refreshToken.get(), TokenData::isValid)) {
-                    UserResponse user = jwtService.getTokenData(refreshToken.get(), TokenData::getUser);
-                    SecurityContextHolder.getContext().setAuthentication(getAuthentication(jwtService.createToken(user, Token::getAccess), request));
+                Optional<TokenData> refreshToken = jwtService.extractToken(request, TokenType.REFRESH.getValue()).map(this::getTokenData);
+                if(refreshToken.isPresent() && refreshToken.get().isValid()) {
+                    UserResponse user = refreshToken.get().getUser();
+                    SecurityContextHolder.getContext().setAuthentication(getAuthentication(refreshToken.get(), request));
                     jwtService.addCookie(response, user, TokenType.ACCESS);
                     RequestContext.setUserId(user.getId());
                 } else {
@@ -64,8 +64,12 @@ public class CustomAuthorizationFilter extends OncePerRequestFilter {
         return shouldNotFilter;
     }
 
-    private Authentication getAuthentication(String token, HttpServletRequest request) {
-        CustomAuthenticationToken authentication = CustomAuthenticationToken.authenticated(jwtService.getTokenData(token, TokenData::getUser), jwtService.getTokenData(token, TokenData::getAuthorities));
+    private TokenData getTokenData(String token) {
+        return jwtService.getTokenData(token, identity());
+    }
+
+    private Authentication getAuthentication(TokenData tokenData, HttpServletRequest request) {
+        CustomAuthenticationToken authentication = CustomAuthenticationToken.authenticated(tokenData.getUser(), tokenData.getAuthorities());
         authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
         return authentication;
     }
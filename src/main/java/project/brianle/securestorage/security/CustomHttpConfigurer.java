@@ -1,5 +1,6 @@
 package project.brianle.securestorage.security;
 
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.RequiredArgsConstructor;
 import org.springframework.security.config.annotation.authentication.configuration.AuthenticationConfiguration;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
@@ -17,6 +18,8 @@ public class CustomHttpConfigurer extends AbstractHttpConfigurer<CustomHttpConfi
     private final UserService userService;
     private final JwtService jwtService;
     private final AuthenticationConfiguration authenticationConfiguration;
+    private final RateLimitProperties rateLimitProperties;
+    private final MeterRegistry meterRegistry;
 
     @Override
     public void init(HttpSecurity http) throws Exception {
@@ -27,6 +30,8 @@ public class CustomHttpConfigurer extends AbstractHttpConfigurer<CustomHttpConfi
     public void configure(HttpSecurity http) throws Exception {
         //This filter likely handles authorization logic, such as checking JWT tokens.
         http.addFilterBefore(customAuthorizationFilter, UsernamePasswordAuthenticationFilter.class);
+        //Throttles login, registration, password reset and uploads; registered after the authorization filter so the user is known.
+        if(rateLimitProperties.isEnabled()) { http.addFilterBefore(new RateLimitFilter(rateLimitProperties, meterRegistry), UsernamePasswordAuthenticationFilter.class); }
         //This filter handles authentication logic, such as processing login requests.
         http.addFilterAfter(new CustomAuthenticationFilter(authenticationConfiguration.getAuthenticationManager(), userService, jwtService), UsernamePasswordAuthenticationFilter.class);
     }
@@ -45,7 +45,9 @@ public class FilterChainConfiguration {
                 .authorizeHttpRequests(request ->
                         request.requestMatchers(PUBLIC_URLS).permitAll()
                                 .requestMatchers(OPTIONS).permitAll()
-                                .requestMatchers("/actuator/**", "/swagger-ui/**", "/swagger-ui.html", "/v3/api-docs/**", "/api-docs/**").permitAll()
+                                .requestMatchers("/actuator/health/**").permitAll()
+                                .requestMatchers("/actuator/**").hasAnyRole("ADMIN", "SUPER_ADMIN")
+                                .requestMatchers("/swagger-ui/**", "/swagger-ui.html", "/v3/api-docs/**", "/api-docs/**").permitAll()
                                 .requestMatchers(DELETE, "/user/delete/**")
                                 .hasAnyAuthority("user:delete")
                                 .requestMatchers(DELETE, "/document/delete/**")
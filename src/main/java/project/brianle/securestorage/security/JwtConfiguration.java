@@ -10,6 +10,6 @@ import org.springframework.beans.factory.annotation.Value;
 public class JwtConfiguration {
     @Value("${jwt.expiration}")
     private Long expiration;
-    @Value("${jwt.secret}")
-    private String secret;
+    @Value("${jwt.stateless:false}")
+    private boolean stateless;
 }
\ No newline at end of file
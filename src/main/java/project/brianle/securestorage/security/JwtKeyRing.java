@@ -0,0 +1,78 @@
+package project.brianle.securestorage.security;
+
+import io.jsonwebtoken.JwsHeader;
+import io.jsonwebtoken.JwtParser;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.LocatorAdapter;
+import io.jsonwebtoken.io.Decoders;
+import io.jsonwebtoken.io.Encoders;
+import io.jsonwebtoken.security.Keys;
+import jakarta.annotation.PostConstruct;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import project.brianle.securestorage.exceptions.CustomException;
+
+import javax.crypto.SecretKey;
+import java.security.Key;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static java.util.Collections.unmodifiableMap;
+
+/**
+ * Signing keys decoded once at startup and addressed by a {@code kid} header.
+ * The configured {@code jwt.secret} signs new tokens; every secret in {@code jwt.previous-secrets}
+ * still verifies, so a secret can be rotated by deploying it as the new secret and moving the old one
+ * to the previous list until the tokens it signed have expired.
+ */
+@Component
+public class JwtKeyRing {
+    @Setter
+    @Value("${jwt.secret}")
+    private String secret;
+    @Setter
+    @Value("${jwt.previous-secrets:}")
+    private List<String> previousSecrets;
+    @Getter
+    private String signingKeyId;
+    @Getter
+    private SecretKey signingKey;
+    private Map<String, SecretKey> verificationKeys;
+    @Getter
+    private JwtParser parser;
+
+    @PostConstruct
+    public void init() {
+        var keys = new LinkedHashMap<String, SecretKey>();
+        signingKey = Keys.hmacShaKeyFor(Decoders.BASE64.decode(secret));
+        signingKeyId = keyId(signingKey);
+        keys.put(signingKeyId, signingKey);
+        previousSecrets.stream()
+                .filter(previous -> !previous.isBlank())
+                .map(previous -> Keys.hmacShaKeyFor(Decoders.BASE64.decode(previous)))
+                .forEach(key -> keys.putIfAbsent(keyId(key), key));
+        verificationKeys = unmodifiableMap(keys);
+        //JwtParser is immutable and thread-safe, so one instance serves every request
+        parser = Jwts.parser().keyLocator(new LocatorAdapter<Key>() {
+            @Override
+            protected Key locate(JwsHeader header) {
+                //tokens issued before key ids were added carry no kid and were signed with the current secret
+                return header.getKeyId() == null ? signingKey : verificationKeys.get(header.getKeyId());
+            }
+        }).build();
+    }
+
+    private static String keyId(SecretKey key) {
+        try {
+            var digest = MessageDigest.getInstance("SHA-256").digest(key.getEncoded());
+            return Encoders.BASE64URL.encode(Arrays.copyOf(digest, 8));
+        } catch (Exception exception) {
+            throw new CustomException("Unable to derive signing key id");
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package project.brianle.securestorage.security;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.web.filter.OncePerRequestFilter;
+import project.brianle.securestorage.dto.response.UserResponse;
+import project.brianle.securestorage.exceptions.TooManyRequestsException;
+import project.brianle.securestorage.utils.RequestUtils;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.springframework.http.HttpMethod.OPTIONS;
+
+/**
+ * Applies the token-bucket budgets from {@link RateLimitProperties}. Every matching request spends a token from
+ * its client address bucket and, once authenticated, from its user bucket too, so neither switching accounts
+ * nor switching addresses escapes the limit. Runs after authorization so the user is known, and before
+ * authentication so rejected logins never reach BCrypt.
+ */
+@Slf4j
+public class RateLimitFilter extends OncePerRequestFilter {
+    private static final String LIMITED_MESSAGE = "Too many requests. Please try again later.";
+    private final AntPathMatcher pathMatcher = new AntPathMatcher();
+    private final List<LimitedRoute> routes;
+
+    public RateLimitFilter(RateLimitProperties properties, MeterRegistry meterRegistry) {
+        this.routes = properties.getRoutes().entrySet().stream().map(entry -> new LimitedRoute(entry.getValue().getPaths(),
+                new TokenBucketLimiter(entry.getValue().getCapacity(), entry.getValue().getPeriod(), properties.getStripes(), properties.getMaximumKeys()),
+                rejected(meterRegistry, entry.getKey(), "ip"), rejected(meterRegistry, entry.getKey(), "user"))).toList();
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain) throws ServletException, IOException {
+        var route = routes.stream().filter(limitedRoute -> limitedRoute.matches(pathMatcher, request.getRequestURI())).findFirst();
+        if(route.isPresent()) {
+            long wait = route.get().limiter().tryAcquire("ip:" + request.getRemoteAddr());
+            if(wait > 0) {
+                route.get().rejectedByIp().increment();
+                reject(request, response, wait);
+                return;
+            }
+            var authentication = SecurityContextHolder.getContext().getAuthentication();
+            if(authentication != null && authentication.getPrincipal() instanceof UserResponse user) {
+                wait = route.get().limiter().tryAcquire("user:" + user.getUserId());
+                if(wait > 0) {
+                    route.get().rejectedByUser().increment();
+                    reject(request, response, wait);
+                    return;
+                }
+            }
+        }
+        filterChain.doFilter(request, response);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return request.getMethod().equalsIgnoreCase(OPTIONS.name());
+    }
+
+    private void reject(HttpServletRequest request, HttpServletResponse response, long waitNanos) {
+        long retryAfterSeconds = Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos + TimeUnit.SECONDS.toNanos(1) - 1));
+        log.debug("Rate limited {} from {}", request.getRequestURI(), request.getRemoteAddr());
+        RequestUtils.handleErrorResponse(request, response, new TooManyRequestsException(LIMITED_MESSAGE, retryAfterSeconds));
+    }
+
+    private static Counter rejected(MeterRegistry meterRegistry, String route, String key) {
+        return Counter.builder("http.rate.limit.rejected").tag("route", route).tag("key", key).register(meterRegistry);
+    }
+
+    private record LimitedRoute(List<String> paths, TokenBucketLimiter limiter, Counter rejectedByIp, Counter rejectedByUser) {
+        private boolean matches(AntPathMatcher pathMatcher, String uri) {
+            return paths.stream().anyMatch(path -> pathMatcher.match(path, uri));
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package project.brianle.securestorage.security;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Per-route request budgets, bound from {@code security.rate-limit}.
+ */
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "security.rate-limit")
+public class RateLimitProperties {
+    private boolean enabled = true;
+    private int stripes = 64;
+    private long maximumKeys = 100_000;
+    private Map<String, Route> routes = new LinkedHashMap<>();
+
+    @Getter
+    @Setter
+    public static class Route {
+        private List<String> paths = List.of();
+        private long capacity = 10;
+        private Duration period = Duration.ofMinutes(1);
+    }
+}
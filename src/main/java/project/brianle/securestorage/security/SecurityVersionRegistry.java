@@ -0,0 +1,46 @@
+package project.brianle.securestorage.security;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import project.brianle.securestorage.repository.UserRepository;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory table of each user's current security version, used by stateless authorization
+ * to reject tokens issued before a role change, lock or password change.
+ * The table is refreshed in bulk from the users updated since the previous refresh.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class SecurityVersionRegistry extends JwtConfiguration {
+    //overlap between refreshes so rows written by nodes with a slightly behind clock are not missed
+    private static final long CLOCK_SKEW_SECONDS = 60;
+    private final UserRepository userRepository;
+    private final Map<String, Long> versions = new ConcurrentHashMap<>();
+    private volatile LocalDateTime lastRefresh;
+
+    public Long get(String userId) {
+        return versions.get(userId);
+    }
+
+    public void update(String userId, long securityVersion) {
+        versions.merge(userId, securityVersion, Math::max);
+    }
+
+    @Scheduled(fixedDelayString = "${jwt.version-refresh-interval:5000}")
+    public void refresh() {
+        if(!isStateless()) { return; }
+        var startedAt = LocalDateTime.now();
+        var since = lastRefresh == null ? LocalDateTime.of(1970, 1, 1, 0, 0) : lastRefresh.minusSeconds(CLOCK_SKEW_SECONDS);
+        var updated = userRepository.findSecurityVersionsUpdatedSince(since);
+        updated.forEach(version -> update(version.getUserId(), version.getSecurityVersion()));
+        lastRefresh = startedAt;
+        log.debug("Refreshed {} security versions", updated.size());
+    }
+}
@@ -0,0 +1,62 @@
+package project.brianle.securestorage.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import java.time.Duration;
+
+/**
+ * In-memory token buckets, one per key. Each bucket holds up to {@code capacity} tokens and refills
+ * continuously at {@code capacity} tokens per {@code period}. Keys hash onto a fixed set of lock stripes,
+ * so requests for different clients rarely contend. A bucket idle for a whole period is full again,
+ * so it is dropped and recreated on demand.
+ */
+public class TokenBucketLimiter {
+    private final long capacity;
+    private final double tokensPerNano;
+    private final Object[] stripes;
+    private final Cache<String, Bucket> buckets;
+
+    public TokenBucketLimiter(long capacity, Duration period, int stripes, long maximumKeys) {
+        this.capacity = capacity;
+        this.tokensPerNano = (double) capacity / period.toNanos();
+        this.stripes = new Object[Integer.highestOneBit(Math.max(stripes, 1))];
+        for(int i = 0; i < this.stripes.length; i++) { this.stripes[i] = new Object(); }
+        this.buckets = Caffeine.newBuilder().expireAfterAccess(period).maximumSize(maximumKeys).build();
+    }
+
+    /**
+     * Takes one token from the bucket at {@code key}.
+     * @return 0 when a token was taken, otherwise the nanoseconds until the next token is available
+     */
+    public long tryAcquire(String key) {
+        return tryAcquire(key, System.nanoTime());
+    }
+
+    long tryAcquire(String key, long now) {
+        synchronized (stripes[spread(key.hashCode()) & (stripes.length - 1)]) {
+            Bucket bucket = buckets.get(key, k -> new Bucket(capacity, now));
+            bucket.tokens = Math.min(capacity, bucket.tokens + (now - bucket.refilledAt) * tokensPerNano);
+            bucket.refilledAt = now;
+            if(bucket.tokens >= 1) {
+                bucket.tokens -= 1;
+                return 0;
+            }
+            return (long) Math.ceil((1 - bucket.tokens) / tokensPerNano);
+        }
+    }
+
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+    private static final class Bucket {
+        private double tokens;
+        private long refilledAt;
+
+        private Bucket(double tokens, long refilledAt) {
+            this.tokens = tokens;
+            this.refilledAt = refilledAt;
+        }
+    }
+}
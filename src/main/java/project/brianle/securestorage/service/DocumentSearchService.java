@@ -0,0 +1,16 @@
+package project.brianle.securestorage.service;
+
+import org.springframework.data.domain.Page;
+import project.brianle.securestorage.dto.response.DocumentSearchResult;
+import project.brianle.securestorage.search.NameTrie;
+
+import java.util.List;
+
+public interface DocumentSearchService {
+    void index(String documentId);
+    void remove(String documentId);
+    void reconcile();
+    Page<DocumentSearchResult> search(String query, int page, int size);
+    String highlight(String documentId, String query);
+    List<NameTrie.Suggestion> suggest(String prefix, int limit);
+}
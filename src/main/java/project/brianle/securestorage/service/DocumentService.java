@@ -1,20 +1,29 @@
 package project.brianle.securestorage.service;
 
-import org.springframework.core.io.Resource;
+import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.data.domain.Page;
 import org.springframework.web.multipart.MultipartFile;
+import project.brianle.securestorage.domain.DocumentFile;
 import project.brianle.securestorage.dto.IDocument;
 import project.brianle.securestorage.dto.response.DocumentResponse;
+import project.brianle.securestorage.enumeration.SearchMode;
+import project.brianle.securestorage.dto.response.StorageStatsResponse;
+import project.brianle.securestorage.dto.response.UploadResponse;
 
+import java.nio.file.Path;
 import java.util.Collection;
 import java.util.List;
 
 public interface DocumentService {
     Page<IDocument> getDocuments(int page, int size);
-    Page<IDocument> getDocuments(int page, int size, String name);
-    Collection<DocumentResponse> saveDocuments(String userId, List<MultipartFile> documents);
+    Page<IDocument> getDocuments(int page, int size, String name, SearchMode mode);
+    UploadResponse saveDocuments(String userId, List<MultipartFile> documents);
+    Collection<DocumentResponse> streamDocuments(String userId, HttpServletRequest request);
+    DocumentResponse saveDocument(String userId, String filename, Path file);
     IDocument updateDocument(String documentId, String name, String description);
     void deleteDocument(String documentId);
     IDocument getDocumentByDocumentId(String documentId);
-    Resource getResource(String documentName);
+    DocumentFile getDocumentFile(String documentId);
+    DocumentFile getDocumentFileByName(String documentName);
+    StorageStatsResponse getStorageStats();
 }
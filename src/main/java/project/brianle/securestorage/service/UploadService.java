@@ -0,0 +1,14 @@
+package project.brianle.securestorage.service;
+
+import project.brianle.securestorage.dto.response.DocumentResponse;
+import project.brianle.securestorage.dto.response.UploadSessionResponse;
+
+import java.io.InputStream;
+
+public interface UploadService {
+    UploadSessionResponse createUpload(String userId, String name, long size);
+    UploadSessionResponse writeChunk(String userId, String uploadId, int index, InputStream content);
+    UploadSessionResponse getUpload(String userId, String uploadId);
+    DocumentResponse commitUpload(String userId, String uploadId);
+    void abortUpload(String userId, String uploadId);
+}
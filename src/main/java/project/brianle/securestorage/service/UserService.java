@@ -12,6 +12,7 @@ public interface UserService {
     RoleEntity getRoleName(String name);
     void verifyAccount(String key);
     void updateLoginAttempt(String email, LoginType loginType);
+    boolean isLoginLocked(String email);
     UserResponse getUserByUserId(String userId);
     UserResponse getUserByEmail(String email);
     CredentialEntity getUserCredentialById(Long userId);
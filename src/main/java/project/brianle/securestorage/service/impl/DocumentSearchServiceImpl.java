@@ -0,0 +1,178 @@
+package project.brianle.securestorage.service.impl;
+
+import com.google.common.util.concurrent.Striped;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import project.brianle.securestorage.domain.IndexedDocument;
+import project.brianle.securestorage.dto.response.DocumentSearchResult;
+import project.brianle.securestorage.entity.DocumentEntity;
+import project.brianle.securestorage.exceptions.CustomException;
+import project.brianle.securestorage.repository.DocumentRepository;
+import project.brianle.securestorage.search.ContentSearchProperties;
+import project.brianle.securestorage.search.DocumentContentIndex;
+import project.brianle.securestorage.search.DocumentNameSuggester;
+import project.brianle.securestorage.search.NameTrie;
+import project.brianle.securestorage.search.TextExtractor;
+import project.brianle.securestorage.service.DocumentSearchService;
+import project.brianle.securestorage.storage.BlobStore;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * Feeds the content index from the documents table. Every update re-reads the document, so events that arrive
+ * late or out of order still leave the entry matching the committed row: a rename that beats the extraction is
+ * picked up by it, and an upload handled after its delete finds no row and removes the entry instead.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class DocumentSearchServiceImpl implements DocumentSearchService {
+    private static final int BATCH_SIZE = 1000;
+    private static final int MAX_SUGGESTIONS = 20;
+    private static final int MAX_PAGE_SIZE = 50;
+    private static final String SELECT_DOCUMENT_IDS = "SELECT id, document_id FROM documents WHERE id > ? ORDER BY id LIMIT ?";
+    private static final String SELECT_EXISTING_IDS = "SELECT document_id FROM documents WHERE document_id = ANY(?)";
+    //extraction runs outside the lock, writing the entry inside it
+    private final Striped<Lock> locks = Striped.lock(64);
+    private final DocumentRepository documentRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final BlobStore blobStore;
+    private final DocumentContentIndex contentIndex;
+    private final TextExtractor textExtractor;
+    private final ContentSearchProperties properties;
+    private final DocumentNameSuggester documentNameSuggester;
+
+    @Override
+    public void index(String documentId) {
+        try {
+            var document = documentRepository.findByDocumentId(documentId);
+            if(document.isEmpty()) {
+                remove(documentId);
+                return;
+            }
+            var content = extract(toIndexedDocument(document.get(), null));
+            var lock = locks.get(documentId);
+            lock.lock();
+            try {
+                var current = documentRepository.findByDocumentId(documentId);
+                if(current.isEmpty()) {
+                    contentIndex.delete(documentId);
+                    return;
+                }
+                contentIndex.put(toIndexedDocument(current.get(), content));
+            } finally {
+                lock.unlock();
+            }
+        } catch (IOException exception) {
+            log.error("Unable to index document {}: {}", documentId, exception.getMessage());
+        }
+    }
+
+    @Override
+    public void remove(String documentId) {
+        var lock = locks.get(documentId);
+        lock.lock();
+        try {
+            contentIndex.delete(documentId);
+        } catch (IOException exception) {
+            log.error("Unable to remove document {} from the index: {}", documentId, exception.getMessage());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Indexes documents that have no entry and drops entries whose document is gone, both in batches so neither
+     * side is ever held in memory whole.
+     */
+    @Override
+    public void reconcile() {
+        try {
+            int added = 0;
+            long lastId = 0;
+            while(true) {
+                var ids = new ArrayList<String>(BATCH_SIZE);
+                var lastIds = jdbcTemplate.query(SELECT_DOCUMENT_IDS, (resultSet, row) -> {
+                    ids.add(resultSet.getString("document_id"));
+                    return resultSet.getLong("id");
+                }, lastId, BATCH_SIZE);
+                if(lastIds.isEmpty()) { break; }
+                lastId = lastIds.get(lastIds.size() - 1);
+                for(String documentId : contentIndex.missing(ids)) {
+                    index(documentId);
+                    added++;
+                }
+            }
+            var removed = new ArrayList<String>();
+            var batch = new ArrayList<String>(BATCH_SIZE);
+            contentIndex.forEachId(documentId -> {
+                batch.add(documentId);
+                if(batch.size() == BATCH_SIZE) { removed.addAll(stale(batch)); batch.clear(); }
+            });
+            removed.addAll(stale(batch));
+            removed.forEach(this::remove);
+            contentIndex.refresh();
+            if(added > 0 || !removed.isEmpty()) { log.info("Reconciled the content index: {} document(s) added, {} removed", added, removed.size()); }
+        } catch (Exception exception) {
+            log.error("Unable to reconcile the content index: {}", exception.getMessage());
+        }
+    }
+
+    @Override
+    public Page<DocumentSearchResult> search(String query, int page, int size) {
+        try {
+            return contentIndex.search(query, PageRequest.of(Math.max(page, 0), Math.max(1, Math.min(size, MAX_PAGE_SIZE))));
+        } catch (IllegalArgumentException exception) {
+            throw new CustomException(exception.getMessage());
+        } catch (IOException exception) {
+            throw new CustomException("Unable to search documents");
+        }
+    }
+
+    //the one call that reads a document, so it is limited to one document and to files small enough to extract quickly
+    @Override
+    public String highlight(String documentId, String query) {
+        var document = documentRepository.findByDocumentId(documentId).orElseThrow(() -> new CustomException("Document not found"));
+        if(document.getSize() > properties.getMaxHighlightFileSize().toBytes()) { return null; }
+        try {
+            return contentIndex.highlight(query, extract(toIndexedDocument(document, null)));
+        } catch (IOException exception) {
+            throw new CustomException("Unable to highlight document");
+        }
+    }
+
+    @Override
+    public List<NameTrie.Suggestion> suggest(String prefix, int limit) {
+        return documentNameSuggester.suggest(prefix, Math.max(1, Math.min(limit, MAX_SUGGESTIONS)));
+    }
+
+    private List<String> stale(List<String> documentIds) {
+        if(documentIds.isEmpty()) { return List.of(); }
+        var existing = new HashSet<>(jdbcTemplate.queryForList(SELECT_EXISTING_IDS, String.class, (Object) documentIds.toArray(String[]::new)));
+        return documentIds.stream().filter(documentId -> !existing.contains(documentId)).toList();
+    }
+
+    //a document whose text cannot be extracted is still indexed, by name, so it is not retried on every start
+    private String extract(IndexedDocument document) {
+        if(document.checksum() == null || document.checksum().isEmpty() || document.size() > properties.getMaxFileSize().toBytes()) { return ""; }
+        try(var input = blobStore.open(document.checksum(), 0, document.size())) {
+            return textExtractor.extract(input, document.name());
+        } catch (Exception exception) {
+            log.warn("Unable to extract text from document {}: {}", document.documentId(), exception.getMessage());
+            return "";
+        }
+    }
+
+    private static IndexedDocument toIndexedDocument(DocumentEntity document, String content) {
+        return new IndexedDocument(document.getDocumentId(), document.getChecksum(), document.getName(), document.getDescription(),
+                document.getExtension(), document.getSize(), content);
+    }
+}
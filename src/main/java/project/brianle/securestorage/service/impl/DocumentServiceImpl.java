@@ -1,42 +1,72 @@
 package project.brianle.securestorage.service.impl;
 
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
-import org.springframework.core.io.Resource;
-import org.springframework.core.io.UrlResource;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.fileupload2.core.DiskFileItem;
+import org.apache.commons.fileupload2.core.DiskFileItemFactory;
+import org.apache.commons.fileupload2.jakarta.servlet6.JakartaServletFileUpload;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.unit.DataSize;
 import org.springframework.web.multipart.MultipartFile;
+import project.brianle.securestorage.cache.CacheStore;
+import project.brianle.securestorage.domain.DocumentFile;
+import project.brianle.securestorage.domain.StoredContent;
 import project.brianle.securestorage.dto.IDocument;
 import project.brianle.securestorage.dto.response.DocumentResponse;
+import project.brianle.securestorage.dto.response.StorageStatsResponse;
+import project.brianle.securestorage.enumeration.SearchMode;
+import project.brianle.securestorage.dto.response.UploadResponse;
+import project.brianle.securestorage.dto.response.UploadResponse.UploadFailure;
 import project.brianle.securestorage.entity.DocumentEntity;
 import project.brianle.securestorage.entity.UserEntity;
+import project.brianle.securestorage.enumeration.EventType;
+import project.brianle.securestorage.event.DocumentEvent;
 import project.brianle.securestorage.exceptions.CustomException;
 import project.brianle.securestorage.repository.DocumentRepository;
 import project.brianle.securestorage.repository.UserRepository;
 import project.brianle.securestorage.service.DocumentService;
 import project.brianle.securestorage.service.UserService;
+import project.brianle.securestorage.storage.BlobStore;
+import project.brianle.securestorage.storage.StorageIoExecutor;
 
+import java.io.IOException;
 import java.nio.file.Files;
-import java.nio.file.Paths;
+import java.nio.file.Path;
+import java.time.ZoneId;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
-import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
 import static org.apache.commons.io.FileUtils.byteCountToDisplaySize;
 import static org.apache.commons.io.FilenameUtils.getExtension;
 import static org.springframework.util.StringUtils.cleanPath;
-import static project.brianle.securestorage.constant.Constants.FILE_STORAGE;
 import static project.brianle.securestorage.utils.DocumentUtils.*;
 
 @Service
+@Slf4j
 @Transactional(rollbackOn = Exception.class)
 @RequiredArgsConstructor
 public class DocumentServiceImpl implements DocumentService {
     private final DocumentRepository documentRepository;
     private final UserRepository userRepository;
     private final UserService userService;
+    private final CacheStore<String, IDocument> documentCache;
+    private final StorageIoExecutor storageIoExecutor;
+    private final BlobStore blobStore;
+    private final ApplicationEventPublisher publisher;
+    private final TransactionTemplate transactionTemplate;
+    @Value("${spring.servlet.multipart.max-file-size}")
+    private DataSize maxFileSize;
+    @Value("${spring.servlet.multipart.max-request-size}")
+    private DataSize maxRequestSize;
 
     @Override
     public Page<IDocument> getDocuments(int page, int size) {
@@ -44,49 +74,176 @@ public class DocumentServiceImpl implements DocumentService {
     }
 
     @Override
-    public Page<IDocument> getDocuments(int page, int size, String name) {
-        return documentRepository.findDocumentsByName(name, PageRequest.of(page, size, Sort.by("name")));
+    public Page<IDocument> getDocuments(int page, int size, String name, SearchMode mode) {
+        //fuzzy results are ranked by similarity in the query itself
+        if(mode == SearchMode.FUZZY) { return documentRepository.findDocumentsBySimilarName(name, PageRequest.of(page, size)); }
+        return documentRepository.findDocumentsByName(mode.pattern(name), PageRequest.of(page, size, Sort.by("name")));
     }
 
     @Override
-    public Collection<DocumentResponse> saveDocuments(String userId, List<MultipartFile> documents) {
-        List<DocumentResponse> documentResponses = new ArrayList<>();
-        UserEntity userEntity = userRepository.findUserByUserId(userId).get();
-        var storage = Paths.get(FILE_STORAGE).toAbsolutePath().normalize();
+    public UploadResponse saveDocuments(String userId, List<MultipartFile> documents) {
+        UserEntity userEntity = userRepository.findUserByUserId(userId).orElseThrow(() -> new CustomException("User not found"));
+        var owner = userService.getUserById(userEntity.getId());
+        List<UploadFailure> failures = new ArrayList<>();
+        Map<MultipartFile, CompletableFuture<StoredContent>> digests = new LinkedHashMap<>();
+        for(MultipartFile document : documents) {
+            var filename = cleanPath(Objects.requireNonNullElse(document.getOriginalFilename(), ""));
+            if(filename.isBlank() || "..".contains(filename) || filename.contains("..")) {
+                failures.add(new UploadFailure(filename, String.format("Invalid file name: %s", filename)));
+            } else {
+                //hashing only reads the part the container already spooled; content that is already stored is never written again
+                digests.put(document, storageIoExecutor.submit(() -> digest(document.getInputStream())));
+            }
+        }
+        Map<MultipartFile, StoredContent> contents = new LinkedHashMap<>();
+        Map<MultipartFile, CompletableFuture<Void>> writes = new LinkedHashMap<>();
+        digests.forEach((document, digest) -> {
+            try {
+                var content = digest.join();
+                contents.put(document, content);
+                if(blobStore.acquire(content.checksum(), content.size())) {
+                    writes.put(document, storageIoExecutor.submit(() -> {
+                        var tempFile = blobStore.newTempFile();
+                        document.transferTo(tempFile.toFile());
+                        blobStore.commit(tempFile, content.checksum(), document.getOriginalFilename());
+                        return null;
+                    }));
+                }
+            } catch (CompletionException exception) {
+                log.error("Unable to read document {}: {}", document.getOriginalFilename(), exception.getCause().getMessage());
+                failures.add(new UploadFailure(document.getOriginalFilename(), "Unable to save document"));
+            }
+        });
+        writes.forEach((document, write) -> {
+            try {
+                write.join();
+            } catch (CompletionException exception) {
+                log.error("Unable to store document {}: {}", document.getOriginalFilename(), exception.getCause().getMessage());
+                blobStore.release(contents.remove(document).checksum());
+                failures.add(new UploadFailure(document.getOriginalFilename(), "Unable to save document"));
+            }
+        });
+        List<DocumentEntity> documentEntities = contents.entrySet().stream()
+                .map(entry -> newDocumentEntity(cleanPath(entry.getKey().getOriginalFilename()), entry.getValue(), userEntity)).toList();
+        try {
+            var savedDocuments = documentRepository.saveAll(documentEntities);
+            savedDocuments.forEach(document -> publisher.publishEvent(new DocumentEvent(document.getDocumentId(), EventType.UPLOAD, document.getName(), null)));
+            return new UploadResponse(savedDocuments.stream().map(document -> fromDocumentEntity(document, owner, owner)).toList(), failures);
+        } catch (Exception exception) {
+            //the blob references roll back with the documents; content stored for new blobs is left without a row
+            //until the orphan sweep adopts it and garbage collection removes it
+            throw new CustomException("Unable to save documents");
+        }
+    }
+
+    /**
+     * Reads the whole request before touching the database: every part is spooled to a temp file, hashed on the
+     * way, and the documents are persisted in one short transaction at the end. A slow client therefore never
+     * holds a pooled connection, and a failure in any part leaves nothing behind.
+     */
+    @Override
+    @Transactional(Transactional.TxType.NOT_SUPPORTED)
+    public Collection<DocumentResponse> streamDocuments(String userId, HttpServletRequest request) {
+        var upload = new JakartaServletFileUpload<DiskFileItem, DiskFileItemFactory>();
+        upload.setFileSizeMax(maxFileSize.toBytes());
+        upload.setSizeMax(maxRequestSize.toBytes());
+        var parts = new ArrayList<StreamedPart>();
         try {
-            for(MultipartFile document : documents) {
-                var filename = cleanPath(Objects.requireNonNull(document.getOriginalFilename()));
-                if("..".contains(filename)) throw new CustomException(String.format("Invalid file name: %s", filename));
-                var documentEntity = DocumentEntity
-                        .builder()
-                        .documentId(UUID.randomUUID().toString())
-                        .name(filename)
-                        .owner(userEntity)
-                        .extension(getExtension(filename))
-                        .uri(getDocumentUri(filename))
-                        .formattedSize(byteCountToDisplaySize(document.getSize()))
-                        .icon(setIcon(getExtension(filename)))
-                        .build();
-                var savedDocument = documentRepository.save(documentEntity);
-                Files.copy(document.getInputStream(), storage.resolve(filename), REPLACE_EXISTING);
-                DocumentResponse newDocument = fromDocumentEntity(savedDocument, userService.getUserById(savedDocument.getOwner().getId()), userService.getUserById(savedDocument.getOwner().getId()));
-                documentResponses.add(newDocument);
+            var documents = upload.getItemIterator(request);
+            while(documents.hasNext()) {
+                var document = documents.next();
+                if(document.isFormField()) { continue; }
+                var filename = cleanPath(Objects.requireNonNull(document.getName()));
+                if("..".contains(filename) || filename.contains("..")) throw new CustomException(String.format("Invalid file name: %s", filename));
+                //the hash is only known once the stream is consumed, so the part lands in a temp file and is kept only if the content is new
+                var tempFile = blobStore.newTempFile();
+                try(var input = document.getInputStream()) {
+                    parts.add(new StreamedPart(filename, tempFile, writeToFile(input, tempFile)));
+                } catch (Exception exception) {
+                    Files.deleteIfExists(tempFile);
+                    throw exception;
+                }
             }
-            return documentResponses;
+            return transactionTemplate.execute(status -> saveStreamedDocuments(userId, parts));
+        } catch (CustomException exception) {
+            throw exception;
         } catch (Exception exception) {
             throw new CustomException("Unable to save documents");
+        } finally {
+            //parts whose content was new have been moved into storage already
+            for(StreamedPart part : parts) { part.file().toFile().delete(); }
         }
     }
 
+    private List<DocumentResponse> saveStreamedDocuments(String userId, List<StreamedPart> parts) {
+        UserEntity userEntity = userRepository.findUserByUserId(userId).orElseThrow(() -> new CustomException("User not found"));
+        var owner = userService.getUserById(userEntity.getId());
+        List<DocumentResponse> documentResponses = new ArrayList<>();
+        for(StreamedPart part : parts) {
+            try {
+                if(blobStore.acquire(part.content().checksum(), part.content().size())) {
+                    blobStore.commit(part.file(), part.content().checksum(), part.filename());
+                }
+            } catch (IOException exception) {
+                log.error("Unable to store document {}: {}", part.filename(), exception.getMessage());
+                throw new CustomException("Unable to save documents");
+            }
+            var savedDocument = documentRepository.save(newDocumentEntity(part.filename(), part.content(), userEntity));
+            publisher.publishEvent(new DocumentEvent(savedDocument.getDocumentId(), EventType.UPLOAD, savedDocument.getName(), null));
+            documentResponses.add(fromDocumentEntity(savedDocument, owner, owner));
+        }
+        return documentResponses;
+    }
+
+    private record StreamedPart(String filename, Path file, StoredContent content) {}
+
+    @Override
+    public DocumentResponse saveDocument(String userId, String filename, Path file) {
+        UserEntity userEntity = userRepository.findUserByUserId(userId).orElseThrow(() -> new CustomException("User not found"));
+        var owner = userService.getUserById(userEntity.getId());
+        try {
+            StoredContent content;
+            try(var input = Files.newInputStream(file)) {
+                content = digest(input);
+            }
+            boolean store = blobStore.acquire(content.checksum(), content.size());
+            var savedDocument = documentRepository.save(newDocumentEntity(filename, content, userEntity));
+            publisher.publishEvent(new DocumentEvent(savedDocument.getDocumentId(), EventType.UPLOAD, savedDocument.getName(), null));
+            //moved last so a failure before this point leaves the file with the caller
+            if(store) { blobStore.commit(file, content.checksum(), filename); }
+            return fromDocumentEntity(savedDocument, owner, owner);
+        } catch (Exception exception) {
+            throw new CustomException("Unable to save document");
+        }
+    }
+
+    private static DocumentEntity newDocumentEntity(String filename, StoredContent content, UserEntity owner) {
+        var documentId = UUID.randomUUID().toString();
+        return DocumentEntity
+                .builder()
+                .documentId(documentId)
+                .name(filename)
+                .owner(owner)
+                .extension(getExtension(filename))
+                .uri(getDocumentUri(documentId))
+                .size(content.size())
+                .checksum(content.checksum())
+                .formattedSize(byteCountToDisplaySize(content.size()))
+                .icon(setIcon(getExtension(filename)))
+                .build();
+    }
+
     @Override
     public IDocument updateDocument(String documentId, String name, String description) {
         try {
+            //content is stored under its hash, so a rename only touches the documents row
             var documentEntity = getDocumentEntity(documentId);
-            var document = Paths.get(FILE_STORAGE).resolve(documentEntity.getName()).toAbsolutePath().normalize();
-            Files.move(document, document.resolveSibling(name), REPLACE_EXISTING);
+            var previousName = documentEntity.getName();
             documentEntity.setName(name);
             documentEntity.setDescription(description);
             documentRepository.save(documentEntity);
+            documentCache.evict(documentId);
+            publisher.publishEvent(new DocumentEvent(documentId, EventType.UPDATE, name, previousName));
             return getDocumentByDocumentId(documentId);
         } catch (Exception exception) {
             throw new CustomException("Unable to update document");
@@ -99,22 +256,41 @@ public class DocumentServiceImpl implements DocumentService {
 
     @Override
     public void deleteDocument(String documentId) {
-
+        var documentEntity = getDocumentEntity(documentId);
+        documentRepository.delete(documentEntity);
+        documentCache.evict(documentId);
+        publisher.publishEvent(new DocumentEvent(documentId, EventType.DELETE, null, documentEntity.getName()));
+        if(documentEntity.getChecksum() != null) { blobStore.release(documentEntity.getChecksum()); }
     }
 
     @Override
     public IDocument getDocumentByDocumentId(String documentId) {
-        return documentRepository.findDocumentByDocumentId(documentId).orElseThrow(() -> new CustomException("Document not found"));
+        return documentCache.get(documentId, key -> documentRepository.findDocumentByDocumentId(key).orElseThrow(() -> new CustomException("Document not found")));
     }
 
     @Override
-    public Resource getResource(String documentName) {
+    public DocumentFile getDocumentFile(String documentId) {
+        var document = getDocumentByDocumentId(documentId);
+        var checksum = document.getChecksum();
+        if(!blobStore.exists(checksum)) throw new CustomException("Document not found");
         try {
-            var file = Paths.get(FILE_STORAGE).toAbsolutePath().normalize().resolve(documentName);
-            if(!Files.exists(file)) throw new CustomException("Document not found");
-            return new UrlResource(file.toUri());
-        } catch (Exception exception) {
+            //content under a checksum never changes, so it was last modified when the document was created
+            var lastModified = document.getCreated_At().atZone(ZoneId.systemDefault()).toInstant();
+            return new DocumentFile(document.getName(), blobStore.localPath(checksum).orElse(null), checksum, document.getSize(), lastModified,
+                    (offset, length) -> blobStore.open(checksum, offset, length), () -> blobStore.openGzip(checksum));
+        } catch (IOException exception) {
             throw new CustomException("Unable to download document");
         }
     }
+
+    @Override
+    public DocumentFile getDocumentFileByName(String documentName) {
+        var document = documentRepository.findFirstByNameOrderByUpdatedAtDesc(documentName).orElseThrow(() -> new CustomException("Document not found"));
+        return getDocumentFile(document.getDocumentId());
+    }
+
+    @Override
+    public StorageStatsResponse getStorageStats() {
+        return blobStore.getStats();
+    }
 }
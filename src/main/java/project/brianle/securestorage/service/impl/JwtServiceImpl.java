@@ -3,8 +3,6 @@ package project.brianle.securestorage.service.impl;
 import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.JwtBuilder;
 import io.jsonwebtoken.Jwts;
-import io.jsonwebtoken.io.Decoders;
-import io.jsonwebtoken.security.Keys;
 import jakarta.servlet.http.Cookie;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
@@ -18,14 +16,14 @@ import project.brianle.securestorage.dto.response.UserResponse;
 import project.brianle.securestorage.enumeration.TokenType;
 import project.brianle.securestorage.function.TriConsumer;
 import project.brianle.securestorage.security.JwtConfiguration;
+import project.brianle.securestorage.security.JwtKeyRing;
+import project.brianle.securestorage.security.SecurityVersionRegistry;
 import project.brianle.securestorage.service.JwtService;
 import project.brianle.securestorage.service.UserService;
 
-import javax.crypto.SecretKey;
 import java.util.*;
 import java.util.function.BiFunction;
 import java.util.function.Function;
-import java.util.function.Supplier;
 
 import static io.jsonwebtoken.Header.JWT_TYPE;
 import static io.jsonwebtoken.Header.TYPE;
@@ -44,17 +42,8 @@ import static project.brianle.securestorage.enumeration.TokenType.REFRESH;
 @Slf4j
 public class JwtServiceImpl extends JwtConfiguration implements JwtService {
     private final UserService userService;
-
-    private final Supplier<SecretKey> key = () -> Keys.hmacShaKeyFor(Decoders.BASE64.decode(getSecret()));
-
-    private final Function<String, Claims> claimsFunction = token ->
-            Jwts.parser()
-                    .verifyWith(key.get())
-                    .build()
-                    .parseSignedClaims(token)
-                    .getPayload();
-
-    private final Function<String, String> subject = token -> getClaimsValue(token, Claims::getSubject);
+    private final SecurityVersionRegistry securityVersions;
+    private final JwtKeyRing keyRing;
 
     private final BiFunction<HttpServletRequest, String, Optional<String>> extractToken = (request, cookieName) ->
             Optional.of(stream(request.getCookies() == null ? new Cookie[]{new Cookie(EMPTY_VALUE, EMPTY_VALUE)} : request.getCookies())
@@ -68,25 +57,17 @@ public class JwtServiceImpl extends JwtConfiguration implements JwtService {
                     .filter(cookie -> Objects.equals(cookieName, cookie.getName()))
                     .findAny()).orElse(empty());
 
-    private final Supplier<JwtBuilder> builder = () ->
-            Jwts.builder()
-                    .header().add(Map.of(TYPE, JWT_TYPE))
-                    .and()
-                    .audience().add(ISSUER)
-                    .and()
-                    .id(UUID.randomUUID().toString())
-                    .issuedAt(from(now()))
-                    .notBefore(new Date())
-                    .signWith(key.get(), Jwts.SIG.HS512);
-
     private final BiFunction<UserResponse, TokenType, String> buildToken = (user, type) ->
-            Objects.equals(type, ACCESS) ? builder.get()
+            Objects.equals(type, ACCESS) ? builder()
                     .subject(user.getUserId())
                     .claim(AUTHORITIES, user.getAuthorities())
                     .claim(ROLE, user.getRole())
+                    .claim(SECURITY_VERSION, user.getSecurityVersion())
+                    .claims(isStateless() ? Map.of(PRINCIPAL, principalClaim(user)) : Map.of())
                     .expiration(from(now().plusSeconds(getExpiration())))
-                    .compact() : builder.get()
+                    .compact() : builder()
                     .subject(user.getUserId())
+                    .claim(SECURITY_VERSION, user.getSecurityVersion())
                     .expiration(from(now().plusSeconds(getExpiration())))
                     .compact();
 
@@ -116,14 +97,29 @@ public class JwtServiceImpl extends JwtConfiguration implements JwtService {
         }
     };
 
-    private <T> T getClaimsValue(String token, Function<Claims, T> claims) {
-        return claimsFunction.andThen(claims).apply(token);
+    // refresh tokens carry no authorities claim, so fall back to the role of the freshly loaded user
+    private final BiFunction<Claims, UserResponse, List<GrantedAuthority>> authorities = (claims, user) ->
+            commaSeparatedStringToAuthorityList(new StringJoiner(AUTHORITY_DELIMITER)
+                    .add(claims.containsKey(AUTHORITIES) ? claims.get(AUTHORITIES, String.class) : user.getAuthorities())
+                    .add(ROLE_PREFIX + (claims.containsKey(ROLE) ? claims.get(ROLE, String.class) : user.getRole())).toString());
+
+    private Claims claims(String token) {
+        return keyRing.getParser()
+                .parseSignedClaims(token)
+                .getPayload();
     }
 
-    public Function<String, List<GrantedAuthority>> authorities = token ->
-            commaSeparatedStringToAuthorityList(new StringJoiner(AUTHORITY_DELIMITER)
-                    .add(claimsFunction.apply(token).get(AUTHORITIES, String.class))
-                    .add(ROLE_PREFIX + claimsFunction.apply(token).get(ROLE, String.class)).toString());
+    private JwtBuilder builder() {
+        return Jwts.builder()
+                .header().add(Map.of(TYPE, JWT_TYPE)).keyId(keyRing.getSigningKeyId())
+                .and()
+                .audience().add(ISSUER)
+                .and()
+                .id(UUID.randomUUID().toString())
+                .issuedAt(from(now()))
+                .notBefore(new Date())
+                .signWith(keyRing.getSigningKey(), Jwts.SIG.HS512);
+    }
 
     @Override
     public String createToken(UserResponse user, Function<Token, String> tokenFunction) {
@@ -143,15 +139,47 @@ public class JwtServiceImpl extends JwtConfiguration implements JwtService {
 
     @Override
     public <T> T getTokenData(String token, Function<TokenData, T> tokenFunction) {
+        // parse and verify the signature once, then derive everything else from the same claims and user
+        var claims = claims(token);
+        if(isStateless() && claims.containsKey(PRINCIPAL)) {
+            var securityVersion = securityVersions.get(claims.getSubject());
+            if(securityVersion != null && securityVersion.equals(claims.get(SECURITY_VERSION, Long.class))) {
+                var user = principal(claims);
+                return tokenFunction.apply(TokenData.builder().valid(true).authorities(authorities.apply(claims, user)).claims(claims).user(user).build());
+            }
+            // unknown or newer version than this node has seen yet: fall through and check the database
+        }
+        var user = userService.getUserByUserId(claims.getSubject());
         return tokenFunction.apply(
                 TokenData.builder()
-                        .valid(Objects.equals(userService.getUserByUserId(subject.apply(token)).getUserId(), claimsFunction.apply(token).getSubject()))
-                        .authorities(authorities.apply(token))
-                        .claims(claimsFunction.apply(token))
-                        .user(userService.getUserByUserId(subject.apply(token)))
+                        .valid(Objects.equals(user.getUserId(), claims.getSubject()) && isCurrentVersion(claims, user))
+                        .authorities(authorities.apply(claims, user))
+                        .claims(claims)
+                        .user(user)
                         .build());
     }
 
+    // tokens issued before versions were embedded carry no claim and stay valid until they expire
+    private boolean isCurrentVersion(Claims claims, UserResponse user) {
+        return !claims.containsKey(SECURITY_VERSION) || claims.get(SECURITY_VERSION, Long.class) == user.getSecurityVersion();
+    }
+
+    // the token is signed, not encrypted, so it only carries what authorization and auditing need; role,
+    // authorities and security version are claims of their own, the principal adds the internal id
+    private Map<String, Object> principalClaim(UserResponse user) {
+        return Map.of(PRINCIPAL_ID, user.getId());
+    }
+
+    private UserResponse principal(Claims claims) {
+        var user = new UserResponse();
+        user.setId(((Number) claims.get(PRINCIPAL, Map.class).get(PRINCIPAL_ID)).longValue());
+        user.setUserId(claims.getSubject());
+        user.setRole(claims.get(ROLE, String.class));
+        user.setAuthorities(claims.get(AUTHORITIES, String.class));
+        user.setSecurityVersion(claims.get(SECURITY_VERSION, Long.class));
+        return user;
+    }
+
     @Override
     public void removeCookie(HttpServletRequest request, HttpServletResponse response, String cookieName) {
         var optionalCookie = extractCookie.apply(request, cookieName);
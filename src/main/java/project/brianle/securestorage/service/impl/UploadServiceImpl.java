@@ -0,0 +1,207 @@
+package project.brianle.securestorage.service.impl;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+import project.brianle.securestorage.domain.UploadSession;
+import project.brianle.securestorage.dto.response.DocumentResponse;
+import project.brianle.securestorage.dto.response.UploadSessionResponse;
+import project.brianle.securestorage.exceptions.CustomException;
+import project.brianle.securestorage.service.DocumentService;
+import project.brianle.securestorage.service.UploadService;
+import project.brianle.securestorage.storage.BlobStore;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static java.nio.file.StandardOpenOption.WRITE;
+import static org.apache.commons.io.FileUtils.deleteQuietly;
+import static org.springframework.util.StringUtils.cleanPath;
+import static project.brianle.securestorage.constant.Constants.STREAM_BUFFER_SIZE;
+
+/**
+ * Resumable uploads. A session preallocates its file next to the blob store, chunks are written at their own
+ * offsets in any order and in parallel, and committing hands the finished file to the document service.
+ * Sessions are kept in memory and in a state file beside the upload's, which is read back at startup, so an upload
+ * survives a restart but every request of it has to reach the same instance. Each user may hold a limited number
+ * of sessions and of preallocated bytes. Session files are plaintext; content is encrypted only when committed.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class UploadServiceImpl implements UploadService {
+    private final DocumentService documentService;
+    private final BlobStore blobStore;
+    private final Map<String, UploadSession> sessions = new ConcurrentHashMap<>();
+    @Value("${storage.upload.chunk-size:8MB}")
+    private DataSize chunkSize;
+    @Value("${storage.upload.max-size:10GB}")
+    private DataSize maxSize;
+    @Value("${storage.upload.session-timeout:24h}")
+    private Duration sessionTimeout;
+    @Value("${storage.upload.max-sessions-per-user:5}")
+    private int maxSessionsPerUser;
+    @Value("${storage.upload.max-reserved-per-user:20GB}")
+    private DataSize maxReservedPerUser;
+
+    @PostConstruct
+    public void restoreSessions() {
+        try(var files = Files.list(blobStore.tempDirectory())) {
+            files.filter(UploadSession::isStateFile).forEach(stateFile -> {
+                try {
+                    var session = new UploadSession(stateFile);
+                    if(Files.size(session.getFile()) != session.getSize()) throw new IOException("Upload file does not match its state");
+                    sessions.put(session.getUploadId(), session);
+                } catch (IOException | RuntimeException exception) {
+                    log.error("Discarding upload state {}: {}", stateFile.getFileName(), exception.getMessage());
+                    deleteQuietly(stateFile.toFile());
+                    var fileName = stateFile.getFileName().toString();
+                    deleteQuietly(stateFile.resolveSibling(fileName.substring(0, fileName.lastIndexOf('.'))).toFile());
+                }
+            });
+        } catch (IOException exception) {
+            log.error("Unable to restore uploads: {}", exception.getMessage());
+        }
+        if(!sessions.isEmpty()) { log.info("Restored {} uploads", sessions.size()); }
+    }
+
+    @Override
+    public UploadSessionResponse createUpload(String userId, String name, long size) {
+        var filename = cleanPath(name);
+        if(filename.isBlank() || filename.contains("..")) throw new CustomException(String.format("Invalid file name: %s", filename));
+        if(size <= 0 || size > maxSize.toBytes()) throw new CustomException(String.format("File size must be between 1 byte and %s", maxSize));
+        var session = new UploadSession(UUID.randomUUID().toString(), userId, filename, size, chunkSize.toBytes(), blobStore.newTempFile());
+        reserve(session);
+        try(var file = new RandomAccessFile(session.getFile().toFile(), "rw")) {
+            file.setLength(size);
+            session.saveState();
+        } catch (IOException exception) {
+            log.error("Unable to start upload {}: {}", session.getUploadId(), exception.getMessage());
+            discard(session);
+            throw new CustomException("Unable to start upload");
+        }
+        return toResponse(session);
+    }
+
+    @Override
+    public UploadSessionResponse writeChunk(String userId, String uploadId, int index, InputStream content) {
+        var session = getSession(userId, uploadId);
+        if(index < 0 || index >= session.getChunkCount()) throw new CustomException(String.format("Chunk %d is out of range", index));
+        if(!session.beginWrite()) throw new CustomException("Upload is already being committed");
+        boolean written = false;
+        try(FileChannel channel = FileChannel.open(session.getFile(), WRITE)) {
+            written = writeAt(content, channel, session.offset(index), session.length(index));
+            //the chunk has to be on disk before the state file says it arrived
+            if(written) { channel.force(false); }
+        } catch (IOException exception) {
+            log.error("Unable to write chunk {} of upload {}: {}", index, uploadId, exception.getMessage());
+            throw new CustomException("Unable to write chunk");
+        } finally {
+            session.endWrite(index, written);
+        }
+        if(!written) throw new CustomException(String.format("Chunk %d must be exactly %d bytes", index, session.length(index)));
+        try {
+            session.saveState();
+        } catch (IOException exception) {
+            //the chunk is in memory only, so a restart would ask for it again
+            log.error("Unable to save state of upload {}: {}", uploadId, exception.getMessage());
+        }
+        return toResponse(session);
+    }
+
+    @Override
+    public UploadSessionResponse getUpload(String userId, String uploadId) {
+        return toResponse(getSession(userId, uploadId));
+    }
+
+    @Override
+    public DocumentResponse commitUpload(String userId, String uploadId) {
+        var session = getSession(userId, uploadId);
+        if(!session.startCommit()) {
+            throw new CustomException(String.format("Upload is incomplete, missing chunks: %s", session.missingChunks()));
+        }
+        try {
+            var document = documentService.saveDocument(userId, session.getName(), session.getFile());
+            discard(session);
+            return document;
+        } catch (RuntimeException exception) {
+            session.cancelCommit();
+            throw exception;
+        }
+    }
+
+    @Override
+    public void abortUpload(String userId, String uploadId) {
+        discard(getSession(userId, uploadId));
+    }
+
+    @Scheduled(fixedDelayString = "${storage.upload.cleanup-interval:600000}")
+    public void expireSessions() {
+        var cutoff = Instant.now().minus(sessionTimeout);
+        sessions.values().stream().filter(session -> session.getLastActivity().isBefore(cutoff) && !session.isCommitting()).forEach(session -> {
+            discard(session);
+            log.info("Expired upload {} after {} of inactivity", session.getUploadId(), sessionTimeout);
+        });
+    }
+
+    //counting and adding under one lock, so concurrent requests of a user cannot both slip under the limits
+    private synchronized void reserve(UploadSession session) {
+        var own = sessions.values().stream().filter(other -> other.getUserId().equals(session.getUserId())).toList();
+        if(own.size() >= maxSessionsPerUser) throw new CustomException(String.format("No more than %d uploads can be open at once", maxSessionsPerUser));
+        long reserved = own.stream().mapToLong(UploadSession::getSize).sum();
+        if(reserved + session.getSize() > maxReservedPerUser.toBytes()) {
+            throw new CustomException(String.format("Open uploads cannot exceed %s in total", maxReservedPerUser));
+        }
+        sessions.put(session.getUploadId(), session);
+    }
+
+    private void discard(UploadSession session) {
+        sessions.remove(session.getUploadId());
+        deleteQuietly(session.stateFile().toFile());
+        deleteQuietly(session.getFile().toFile());
+    }
+
+    private UploadSession getSession(String userId, String uploadId) {
+        var session = sessions.get(uploadId);
+        if(session == null || !session.getUserId().equals(userId)) throw new CustomException("Upload not found");
+        return session;
+    }
+
+    //writes exactly length bytes at position; anything shorter or longer leaves the chunk unreceived
+    private static boolean writeAt(InputStream content, FileChannel channel, long position, long length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(STREAM_BUFFER_SIZE, length + 1));
+        long written = 0;
+        int read;
+        while((read = content.read(buffer.array(), 0, buffer.capacity())) != -1) {
+            if(written + read > length) { return false; }
+            buffer.limit(read).position(0);
+            while(buffer.hasRemaining()) { written += channel.write(buffer, position + written); }
+            buffer.clear();
+        }
+        return written == length;
+    }
+
+    private static UploadSessionResponse toResponse(UploadSession session) {
+        return UploadSessionResponse.builder()
+                .uploadId(session.getUploadId())
+                .name(session.getName())
+                .size(session.getSize())
+                .chunkSize(session.getChunkSize())
+                .chunkCount(session.getChunkCount())
+                .receivedChunks(session.receivedChunks())
+                .build();
+    }
+}
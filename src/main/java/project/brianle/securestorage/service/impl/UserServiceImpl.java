@@ -10,11 +10,15 @@ import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.context.ApplicationEventPublisher;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.web.multipart.MultipartFile;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 import project.brianle.securestorage.cache.CacheStore;
+import project.brianle.securestorage.cache.CounterStore;
+import project.brianle.securestorage.cache.LoginActivityBuffer;
+import project.brianle.securestorage.domain.LoginActivity;
 import project.brianle.securestorage.domain.RequestContext;
 import project.brianle.securestorage.dto.response.UserResponse;
 import project.brianle.securestorage.entity.ConfirmationEntity;
@@ -31,20 +35,19 @@ import project.brianle.securestorage.repository.ConfirmationRepository;
 import project.brianle.securestorage.repository.CredentialRepository;
 import project.brianle.securestorage.repository.RoleRepository;
 import project.brianle.securestorage.repository.UserRepository;
+import project.brianle.securestorage.security.PasswordHasher;
+import project.brianle.securestorage.security.SecurityVersionRegistry;
 import project.brianle.securestorage.service.UserService;
+import project.brianle.securestorage.storage.PhotoStore;
 import project.brianle.securestorage.utils.AccountUtils;
 
-import java.nio.file.Files;
-import java.nio.file.Paths;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
-import java.util.Optional;
-import java.util.function.BiFunction;
 
-import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
 import static org.apache.commons.lang3.StringUtils.EMPTY;
-import static project.brianle.securestorage.constant.Constants.FILE_STORAGE;
+import static project.brianle.securestorage.constant.Constants.*;
 import static project.brianle.securestorage.utils.UserUtils.*;
 
 @Service
@@ -56,9 +59,14 @@ public class UserServiceImpl implements UserService {
     private final RoleRepository roleRepository;
     private final CredentialRepository credentialRepository;
     private final ConfirmationRepository confirmationRepository;
-    private final CacheStore<String, Integer> cacheStore;
-    private final BCryptPasswordEncoder encoder;
+    private final CounterStore<String> cacheStore;
+    private final CacheStore<String, UserResponse> userCache;
+    private final CacheStore<String, Long> roleCache;
+    private final PasswordHasher encoder;
     private final ApplicationEventPublisher publisher;
+    private final SecurityVersionRegistry securityVersions;
+    private final LoginActivityBuffer loginActivity;
+    private final PhotoStore photoStore;
 
     @Override
     public void createUser(String firstName, String lastName, String email, String password) {
@@ -72,8 +80,9 @@ public class UserServiceImpl implements UserService {
 
     @Override
     public RoleEntity getRoleName(String name) {
-        Optional<RoleEntity> role = roleRepository.findByNameIgnoreCase(name);
-        return role.orElseThrow(() -> new CustomException("Role not found"));
+        //only the id is cached, entities would be detached by the time another session reads them
+        var roleId = roleCache.get(name.toUpperCase(Locale.ROOT), key -> roleRepository.findByNameIgnoreCase(key).map(RoleEntity::getId).orElseThrow(() -> new CustomException("Role not found")));
+        return roleRepository.getReferenceById(roleId);
     }
 
     @Override
@@ -83,45 +92,55 @@ public class UserServiceImpl implements UserService {
         userEntity.setEnabled(true);
         userRepository.save(userEntity);
         confirmationRepository.delete(confirmationEntity);
+        evictUser(userEntity);
 
     }
 
     @Override
     public void updateLoginAttempt(String email, LoginType loginType) {
-        UserEntity userEntity = getUserEntityByEmail(email);
-        RequestContext.setUserId(userEntity.getId());
+        UserResponse user = getUserByEmail(email);
+        RequestContext.setUserId(user.getId());
         switch (loginType){
             case LOGIN_ATTEMPT -> {
-                if(cacheStore.get(userEntity.getEmail()) == null){
-                   userEntity.setLoginAttempts(0);
-                   userEntity.setAccountNonLocked(true);
-                }
-                userEntity.setLoginAttempts(userEntity.getLoginAttempts() + 1);
-                cacheStore.put(userEntity.getEmail(), userEntity.getLoginAttempts());
-                if(cacheStore.get(userEntity.getEmail()) > 5){
-                    userEntity.setAccountNonLocked(false);
+                int loginAttempts = cacheStore.increment(user.getEmail());
+                if(loginAttempts == 1 && !user.isAccountNonLocked()) {
+                    //the lock expires with the previous window; clear it now rather than at the next flush so this attempt is not rejected
+                    UserEntity userEntity = getUserEntityById(user.getId());
+                    userEntity.setAccountNonLocked(true);
+                    userEntity.setLoginAttempts(loginAttempts);
+                    userRepository.save(userEntity);
+                    evictUser(userEntity);
+                } else {
+                    loginActivity.record(new LoginActivity(user.getId(), user.getUserId(), user.getEmail(), loginAttempts, loginAttempts <= MAX_LOGIN_ATTEMPTS, null));
                 }
             }
             case LOGIN_SUCCESS -> {
-                userEntity.setAccountNonLocked(true);
-                userEntity.setLoginAttempts(0);
-                userEntity.setLastLogin(LocalDateTime.now());
-                cacheStore.evict(userEntity.getEmail());
+                cacheStore.evict(user.getEmail());
+                loginActivity.record(new LoginActivity(user.getId(), user.getUserId(), user.getEmail(), 0, true, LocalDateTime.now()));
             }
         }
-        userRepository.save(userEntity);
+    }
+
+    @Override
+    public boolean isLoginLocked(String email) {
+        Integer loginAttempts = cacheStore.get(email);
+        return loginAttempts != null && loginAttempts > MAX_LOGIN_ATTEMPTS;
     }
 
     @Override
     public UserResponse getUserByUserId(String userId) {
+        var user = userCache.get(USER_ID_KEY + userId);
+        if(user != null) { return user; }
         var userEntity = userRepository.findUserByUserId(userId).orElseThrow(() -> new CustomException("User not found"));
-        return fromUserEntity(userEntity, userEntity.getRole(), getUserCredentialById(userEntity.getId()));
+        return cacheUser(fromUserEntity(userEntity, userEntity.getRole(), getUserCredentialById(userEntity.getId())));
     }
 
     @Override
     public UserResponse getUserByEmail(String email) {
+        var user = userCache.get(EMAIL_KEY + email.toLowerCase());
+        if(user != null) { return user; }
         UserEntity userEntity = getUserEntityByEmail(email);
-        return fromUserEntity(userEntity, userEntity.getRole(), getUserCredentialById(userEntity.getId()));
+        return cacheUser(fromUserEntity(userEntity, userEntity.getRole(), getUserCredentialById(userEntity.getId())));
     }
 
     @Override
@@ -138,6 +157,7 @@ public class UserServiceImpl implements UserService {
         userEntity.setQrCodeSecret(codeSecret);
         userEntity.setMfa(true);
         userRepository.save(userEntity);
+        evictUser(userEntity);
         return fromUserEntity(userEntity, userEntity.getRole(), getUserCredentialById(userEntity.getId()));
     }
 
@@ -148,6 +168,7 @@ public class UserServiceImpl implements UserService {
         userEntity.setQrCodeSecret(EMPTY);
         userEntity.setQrCodeImageUri(EMPTY);
         userRepository.save(userEntity);
+        evictUser(userEntity);
         return fromUserEntity(userEntity, userEntity.getRole(), getUserCredentialById(userEntity.getId()));
     }
 
@@ -187,17 +208,22 @@ public class UserServiceImpl implements UserService {
         CredentialEntity credentialEntity = getUserCredentialById(userEntity.getId());
         credentialEntity.setPassword(encoder.encode(newPassword));
         credentialRepository.save(credentialEntity);
+        revokeTokens(userEntity);
+        userRepository.save(userEntity);
+        evictUser(userEntity);
     }
 
     @Override
     public UserResponse updateUser(String userId, String firstName, String lastName, String email, String phone, String bio) {
         UserEntity userEntity = getUserEntityByUserId(userId);
+        evictUser(userEntity); //the email may change below, so drop the entry under the old one first
         userEntity.setFirstName(firstName);
         userEntity.setLastName(lastName);
         userEntity.setEmail(email);
         userEntity.setPhone(phone);
         userEntity.setBio(bio);
         userRepository.save(userEntity);
+        evictUser(userEntity);
         return fromUserEntity(userEntity, userEntity.getRole(), getUserCredentialById(userEntity.getId()));
     }
 
@@ -205,7 +231,9 @@ public class UserServiceImpl implements UserService {
     public void updateRole(String userId, String role) {
         UserEntity userEntity = getUserEntityByUserId(userId);
         userEntity.setRole(getRoleName(role));
+        revokeTokens(userEntity);
         userRepository.save(userEntity);
+        evictUser(userEntity);
     }
 
     @Override
@@ -222,6 +250,9 @@ public class UserServiceImpl implements UserService {
             }
             default -> {}
         }
+        revokeTokens(userEntity);
+        userRepository.save(userEntity);
+        evictUser(userEntity);
     }
 
     @Override
@@ -233,21 +264,27 @@ public class UserServiceImpl implements UserService {
         if(!encoder.matches(currentPassword, credentialEntity.getPassword())) throw new CustomException("Existing password is incorrect. Please try again.");
         credentialEntity.setPassword(encoder.encode(newPassword));
         credentialRepository.save(credentialEntity);
+        revokeTokens(userEntity);
+        userRepository.save(userEntity);
+        evictUser(userEntity);
     }
 
     @Override
     public String uploadPhoto(String userId, MultipartFile file) {
         UserEntity userEntity = getUserEntityByUserId(userId);
-        String photoUrl = photoFunction.apply(userId, file);
+        String photoUrl = savePhoto(userId, file);
         userEntity.setImageUrl(photoUrl);
         userRepository.save(userEntity);
+        evictUser(userEntity);
         return photoUrl;
     }
 
     @Override
     public UserResponse getUserById(Long id) {
+        var user = userCache.get(ID_KEY + id);
+        if(user != null) { return user; }
         var userEntity = getUserEntityById(id);
-        return fromUserEntity(userEntity, userEntity.getRole(), getUserCredentialById(userEntity.getId()));
+        return cacheUser(fromUserEntity(userEntity, userEntity.getRole(), getUserCredentialById(userEntity.getId())));
     }
 
     @Override
@@ -256,19 +293,43 @@ public class UserServiceImpl implements UserService {
         return fromUserEntity(user.get(0), user.get(0).getRole(), getUserCredentialById(user.get(0).getId()));
     }
 
-    public static BiFunction<String, MultipartFile, String> photoFunction = (id, file) -> {
+    private String savePhoto(String id, MultipartFile file) {
         var filename = id + ".png";
-        try {
-            var fileStorageLocation = Paths.get(FILE_STORAGE).toAbsolutePath().normalize();
-            if(!Files.exists(fileStorageLocation)) {Files.createDirectories(fileStorageLocation);}
-            Files.copy(file.getInputStream(), fileStorageLocation.resolve(filename), REPLACE_EXISTING);
+        try(var content = file.getInputStream()) {
+            photoStore.save(filename, content);
             return ServletUriComponentsBuilder
                     .fromCurrentContextPath()
                     .path("/user/image/" + filename).toUriString();
         } catch (Exception exception) {
             throw new CustomException("Unable to save image");
         }
-    };
+    }
+
+    private UserResponse cacheUser(UserResponse user) {
+        userCache.put(USER_ID_KEY + user.getUserId(), user);
+        userCache.put(ID_KEY + user.getId(), user);
+        userCache.put(EMAIL_KEY + user.getEmail().toLowerCase(), user);
+        return user;
+    }
+
+    private void revokeTokens(UserEntity userEntity) {
+        userEntity.setSecurityVersion(userEntity.getSecurityVersion() + 1);
+    }
+
+    private void evictUser(UserEntity userEntity) {
+        var keys = List.of(USER_ID_KEY + userEntity.getUserId(), ID_KEY + userEntity.getId(), EMAIL_KEY + userEntity.getEmail().toLowerCase());
+        keys.forEach(userCache::evict);
+        //a concurrent reader may re-cache the old row before this transaction commits, so evict once more afterwards
+        if(TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    keys.forEach(userCache::evict);
+                    securityVersions.update(userEntity.getUserId(), userEntity.getSecurityVersion());
+                }
+            });
+        }
+    }
 
     private ConfirmationEntity getUserConfirmation(UserEntity user) {
         return confirmationRepository.findByUserEntity(user).orElse(null);
@@ -0,0 +1,200 @@
+package project.brianle.securestorage.storage;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.unit.DataSize;
+import project.brianle.securestorage.domain.EncodedContent;
+import project.brianle.securestorage.domain.StoredObject;
+import project.brianle.securestorage.dto.response.StorageStatsResponse;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+/**
+ * Stores each distinct content once under its SHA-256 hash, reference counted in {@code blobs}.
+ */
+@Slf4j
+@Component
+public class BlobStore {
+    private static final String ACQUIRE = """
+            INSERT INTO blobs AS blob (hash, size, ref_count, created_at) VALUES (?, ?, 1, now())
+            ON CONFLICT (hash) DO UPDATE SET ref_count = blob.ref_count + 1, size = EXCLUDED.size
+            RETURNING ref_count""";
+    private static final String RELEASE = "UPDATE blobs SET ref_count = ref_count - 1 WHERE hash = ? AND ref_count > 0";
+    private static final String SELECT_UNREFERENCED = "SELECT hash FROM blobs WHERE ref_count <= 0";
+    private static final String DELETE_UNREFERENCED = "DELETE FROM blobs WHERE hash = ? AND ref_count <= 0";
+    private static final String SELECT_EXISTING = "SELECT hash FROM blobs WHERE hash = ANY(?)";
+    //the size is not known from the stored bytes alone, the next upload of the content sets it
+    private static final String ADOPT_ORPHAN = "INSERT INTO blobs (hash, size, ref_count, created_at) VALUES (?, 0, 0, now()) ON CONFLICT (hash) DO NOTHING";
+    private static final String SELECT_UNMEASURED = "SELECT hash FROM blobs WHERE stored_size IS NULL ORDER BY created_at LIMIT 500";
+    private static final String UPDATE_STORED_SIZE = "UPDATE blobs SET stored_size = ? WHERE hash = ?";
+    //content that is still missing well after its row was created will not turn up, stop measuring it
+    private static final String UPDATE_UNMEASURABLE = "UPDATE blobs SET stored_size = -1 WHERE hash = ? AND stored_size IS NULL AND created_at < now() - make_interval(secs => ?)";
+    private static final String RESET_UNMEASURABLE = "UPDATE blobs SET stored_size = NULL WHERE hash = ? AND stored_size < 0";
+    private static final String SELECT_STATS = """
+            SELECT (SELECT COUNT(*) FROM documents) AS documents, (SELECT COALESCE(SUM(size), 0) FROM documents) AS logical_size,
+            COUNT(*) AS blobs, COALESCE(SUM(size), 0) AS content_size, COALESCE(SUM(stored_size), 0) AS stored_size
+            FROM blobs WHERE stored_size >= 0""";
+    private static final Duration STALE_TEMP_FILE_AGE = Duration.ofDays(1);
+    private static final Duration UNMEASURABLE_AGE = Duration.ofHours(1);
+    private static final Pattern HASH = Pattern.compile("[0-9a-f]{64}");
+    private static final int SWEEP_BATCH_SIZE = 1000;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final DocumentStorage storage;
+    private final CompressedDocumentStorage compressedStorage;
+    private final LocalDocumentStorage localStorage;
+
+    public BlobStore(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate, DocumentStorage storage,
+                     LocalDocumentStorage localStorage, MasterKeyRing masterKeyRing, CompressionProperties compression,
+                     @Value("${storage.encryption.enabled:true}") boolean encrypted,
+                     @Value("${storage.encryption.segment-size:64KB}") DataSize segmentSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        //the backend only ever sees encrypted content; reads of content stored before encryption pass through
+        var encryptedStorage = encrypted ? new EncryptedDocumentStorage(storage, masterKeyRing, localStorage::newTempFile, (int) segmentSize.toBytes()) : storage;
+        //compression has to come first, encrypted bytes do not compress
+        this.compressedStorage = compression.isEnabled() ? new CompressedDocumentStorage(encryptedStorage, localStorage::newTempFile,
+                (int) compression.getBlockSize().toBytes(), compression.getLevel(), compression.getMinSaving(), compression.getSkipExtensions()) : null;
+        this.storage = compressedStorage != null ? compressedStorage : encryptedStorage;
+        this.localStorage = localStorage;
+    }
+
+    public boolean exists(String hash) {
+        return hash != null && stat(hash).isPresent();
+    }
+
+    public Optional<StoredObject> stat(String hash) {
+        try {
+            return storage.stat(hash);
+        } catch (IOException exception) {
+            throw new UncheckedIOException(exception);
+        }
+    }
+
+    public Optional<Path> localPath(String hash) throws IOException {
+        return storage.localPath(hash);
+    }
+
+    public InputStream open(String hash, long offset, long length) throws IOException {
+        return storage.get(hash, offset, length);
+    }
+
+    //for clients that accept gzip, sent without inflating it
+    public Optional<EncodedContent> openGzip(String hash) throws IOException {
+        return compressedStorage == null ? Optional.empty() : compressedStorage.getGzip(hash);
+    }
+
+    //next to the local blobs so committing is a rename; holds plaintext until committed
+    public Path newTempFile() {
+        return localStorage.newTempFile();
+    }
+
+    public Path tempDirectory() {
+        return localStorage.getTemp();
+    }
+
+    //must run in the caller's transaction: the locked row keeps garbage collection away until it commits;
+    //true when the content is not stored yet and the caller has to commit it
+    public boolean acquire(String hash, long size) {
+        jdbcTemplate.queryForObject(ACQUIRE, Integer.class, hash, size);
+        return !exists(hash);
+    }
+
+    //concurrent uploads of the same content may both commit, the bytes are identical
+    public void commit(Path tempFile, String hash, String filename) throws IOException {
+        if(compressedStorage != null) {
+            compressedStorage.put(hash, tempFile, filename);
+        } else {
+            storage.put(hash, tempFile);
+        }
+        //content that went missing and was uploaded again can be measured again
+        jdbcTemplate.update(RESET_UNMEASURABLE, hash);
+    }
+
+    public void release(String hash) {
+        jdbcTemplate.update(RELEASE, hash);
+    }
+
+    @Scheduled(fixedDelayString = "${storage.blob.gc-interval:300000}")
+    public void collectGarbage() {
+        jdbcTemplate.queryForList(SELECT_UNREFERENCED, String.class).forEach(hash -> transactionTemplate.executeWithoutResult(status -> {
+            if(jdbcTemplate.update(DELETE_UNREFERENCED, hash) == 1) {
+                try {
+                    storage.delete(hash);
+                } catch (IOException exception) {
+                    //roll back so the row is collected again on the next run
+                    log.error("Unable to delete blob {}: {}", hash, exception.getMessage());
+                    status.setRollbackOnly();
+                }
+            }
+        }));
+        localStorage.deleteTempFiles(Instant.now().minus(STALE_TEMP_FILE_AGE));
+    }
+
+    //content placed by a rolled-back upload gets a row without references, so the next collection removes it
+    @Scheduled(fixedDelayString = "${storage.blob.orphan-sweep-interval:86400000}", initialDelayString = "${storage.blob.orphan-sweep-interval:86400000}")
+    public void sweepOrphans() {
+        var adopted = new AtomicLong();
+        var batch = new ArrayList<String>(SWEEP_BATCH_SIZE);
+        try {
+            storage.forEachKey(key -> {
+                if(!HASH.matcher(key).matches()) { return; }
+                batch.add(key);
+                if(batch.size() == SWEEP_BATCH_SIZE) { adopted.addAndGet(adoptOrphans(batch)); batch.clear(); }
+            });
+            adopted.addAndGet(adoptOrphans(batch));
+        } catch (IOException exception) {
+            log.error("Unable to list stored blobs: {}", exception.getMessage());
+        }
+        if(adopted.get() > 0) { log.info("Found {} stored blob(s) without a row, they will be collected", adopted.get()); }
+    }
+
+    private int adoptOrphans(List<String> hashes) {
+        if(hashes.isEmpty()) { return 0; }
+        var existing = new HashSet<>(jdbcTemplate.queryForList(SELECT_EXISTING, String.class, (Object) hashes.toArray(String[]::new)));
+        //a tiered storage lists content held in both tiers twice, the second insert then does nothing
+        return hashes.stream().distinct().filter(hash -> !existing.contains(hash)).mapToInt(hash -> jdbcTemplate.update(ADOPT_ORPHAN, hash)).sum();
+    }
+
+    //apart from uploads because the uploading transaction holds the row lock until it commits
+    @Scheduled(fixedDelayString = "${storage.blob.measure-interval:60000}")
+    public void measureStoredSizes() {
+        jdbcTemplate.queryForList(SELECT_UNMEASURED, String.class).forEach(hash -> {
+            try {
+                var stored = storage.stat(hash);
+                if(stored.isPresent()) {
+                    jdbcTemplate.update(UPDATE_STORED_SIZE, stored.get().size(), hash);
+                } else if(jdbcTemplate.update(UPDATE_UNMEASURABLE, hash, UNMEASURABLE_AGE.toSeconds()) == 1) {
+                    log.warn("Content of blob {} is missing, it will not be measured", hash);
+                }
+            } catch (IOException exception) {
+                log.error("Unable to measure blob {}: {}", hash, exception.getMessage());
+            }
+        });
+    }
+
+    public StorageStatsResponse getStats() {
+        return jdbcTemplate.queryForObject(SELECT_STATS, (resultSet, row) -> StorageStatsResponse.builder()
+                .documents(resultSet.getLong("documents"))
+                .logicalSize(resultSet.getLong("logical_size"))
+                .blobs(resultSet.getLong("blobs"))
+                .contentSize(resultSet.getLong("content_size"))
+                .storedSize(resultSet.getLong("stored_size"))
+                .build());
+    }
+}
@@ -0,0 +1,318 @@
+package project.brianle.securestorage.storage;
+
+import project.brianle.securestorage.domain.EncodedContent;
+import project.brianle.securestorage.domain.StoredObject;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import static java.nio.file.StandardOpenOption.*;
+
+/**
+ * Stores content as independent one-block gzip members, so a range read inflates only the blocks it overlaps
+ * and gzip clients get the members as they are.
+ */
+public class CompressedDocumentStorage implements DocumentStorage {
+    private static final byte[] MAGIC = { (byte) 0x89, 'S', 'S', 'Z', '\r', '\n', 0x1A, 0x01 };
+    static final int HEADER_SIZE = MAGIC.length + Integer.BYTES + Long.BYTES + Integer.BYTES + Long.BYTES;
+    private static final byte[] GZIP_HEADER = { 0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, (byte) 0xff };
+    private static final int GZIP_TRAILER_SIZE = 8;
+    private static final List<byte[]> COMPRESSED_SIGNATURES = List.of(
+            new byte[] { 0x1f, (byte) 0x8b },                       //gzip
+            new byte[] { 'P', 'K', 0x03, 0x04 },                    //zip, docx, xlsx, jar
+            new byte[] { (byte) 0x89, 'P', 'N', 'G' },              //png
+            new byte[] { (byte) 0xff, (byte) 0xd8, (byte) 0xff },   //jpeg
+            new byte[] { 'G', 'I', 'F', '8' },                      //gif
+            new byte[] { 'R', 'I', 'F', 'F' },                      //webp, avi, wav
+            new byte[] { 0x28, (byte) 0xb5, 0x2f, (byte) 0xfd },    //zstd
+            new byte[] { 'B', 'Z', 'h' },                           //bzip2
+            new byte[] { (byte) 0xfd, '7', 'z', 'X', 'Z', 0 },      //xz
+            new byte[] { '7', 'z', (byte) 0xbc, (byte) 0xaf },      //7z
+            new byte[] { 'R', 'a', 'r', '!' },                      //rar
+            new byte[] { 'O', 'g', 'g', 'S' },                      //ogg
+            new byte[] { 'I', 'D', '3' });                          //mp3
+    private final DocumentStorage delegate;
+    private final Supplier<Path> tempFiles;
+    private final int blockSize;
+    private final int level;
+    private final double minSaving;
+    private final Set<String> skipExtensions;
+
+    public CompressedDocumentStorage(DocumentStorage delegate, Supplier<Path> tempFiles, int blockSize, int level, double minSaving, Set<String> skipExtensions) {
+        this.delegate = delegate;
+        this.tempFiles = tempFiles;
+        this.blockSize = blockSize;
+        this.level = level;
+        this.minSaving = minSaving;
+        this.skipExtensions = skipExtensions;
+    }
+
+    @Override
+    public void put(String key, Path file) throws IOException {
+        put(key, file, null);
+    }
+
+    //skipped for already compressed types and content whose first block barely shrinks
+    public void put(String key, Path file, String filename) throws IOException {
+        if(!worthCompressing(file, filename)) {
+            delegate.put(key, file);
+            return;
+        }
+        var compressed = tempFiles.get();
+        try {
+            compress(file, compressed);
+            Files.delete(file);
+            delegate.put(key, compressed);
+        } finally {
+            Files.deleteIfExists(compressed);
+        }
+    }
+
+    @Override
+    public InputStream get(String key) throws IOException {
+        var header = header(key);
+        if(header == null) { return delegate.get(key); }
+        return header.logicalSize() == 0 ? InputStream.nullInputStream() : get(key, header, 0, header.logicalSize());
+    }
+
+    @Override
+    public InputStream get(String key, long offset, long length) throws IOException {
+        var header = header(key);
+        if(header == null) { return delegate.get(key, offset, length); }
+        length = Math.min(length, header.logicalSize() - offset);
+        return length <= 0 ? InputStream.nullInputStream() : get(key, header, offset, length);
+    }
+
+    //empty when the content is stored uncompressed
+    public Optional<EncodedContent> getGzip(String key) throws IOException {
+        var header = header(key);
+        if(header == null) { return Optional.empty(); }
+        return Optional.of(new EncodedContent(header.dataLength(), delegate.get(key, HEADER_SIZE, header.dataLength())));
+    }
+
+    @Override
+    public void delete(String key) throws IOException {
+        delegate.delete(key);
+    }
+
+    @Override
+    public Optional<StoredObject> stat(String key) throws IOException {
+        return delegate.stat(key);
+    }
+
+    @Override
+    public void forEachKey(Consumer<String> action) throws IOException {
+        delegate.forEachKey(action);
+    }
+
+    private InputStream get(String key, Header header, long offset, long length) throws IOException {
+        long[] memberOffsets = memberOffsets(key, header);
+        int first = (int) (offset / header.blockSize());
+        int last = (int) ((offset + length - 1) / header.blockSize());
+        long start = memberOffsets[first];
+        var source = delegate.get(key, HEADER_SIZE + start, memberOffsets[last + 1] - start);
+        return new InflatingInputStream(source, memberOffsets, header.blockSize(), first, (int) (offset % header.blockSize()), length);
+    }
+
+    private boolean worthCompressing(Path file, String filename) throws IOException {
+        if(filename != null) {
+            var dot = filename.lastIndexOf('.');
+            if(dot >= 0 && skipExtensions.contains(filename.substring(dot + 1).toLowerCase(Locale.ROOT))) { return false; }
+        }
+        byte[] sample;
+        try(var input = Files.newInputStream(file)) {
+            sample = input.readNBytes(blockSize);
+        }
+        if(sample.length == 0) { return false; }
+        for(byte[] signature : COMPRESSED_SIGNATURES) {
+            if(sample.length >= signature.length && Arrays.equals(sample, 0, signature.length, signature, 0, signature.length)) { return false; }
+        }
+        var deflater = new Deflater(level, true);
+        try {
+            deflater.setInput(sample);
+            deflater.finish();
+            var output = new byte[sample.length];
+            long compressed = 0;
+            while(!deflater.finished()) {
+                compressed += deflater.deflate(output);
+                if(compressed > sample.length * (1 - minSaving)) { return false; }
+            }
+            return true;
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private void compress(Path source, Path target) throws IOException {
+        var deflater = new Deflater(level, true);
+        var crc = new CRC32();
+        try(var input = FileChannel.open(source, READ); var output = FileChannel.open(target, CREATE_NEW, WRITE)) {
+            long size = input.size();
+            int blocks = (int) ((size + blockSize - 1) / blockSize);
+            var lengths = ByteBuffer.allocate(blocks * Integer.BYTES);
+            var block = new byte[blockSize];
+            var member = new ByteArrayOutputStream(blockSize);
+            var deflated = new byte[blockSize];
+            output.position(HEADER_SIZE);
+            var stream = Channels.newOutputStream(output);
+            long dataLength = 0;
+            for(int index = 0; index < blocks; index++) {
+                int length = readBlock(input, block);
+                member.reset();
+                member.write(GZIP_HEADER);
+                deflater.reset();
+                deflater.setInput(block, 0, length);
+                deflater.finish();
+                while(!deflater.finished()) { member.write(deflated, 0, deflater.deflate(deflated)); }
+                crc.reset();
+                crc.update(block, 0, length);
+                member.write(ByteBuffer.allocate(GZIP_TRAILER_SIZE).order(ByteOrder.LITTLE_ENDIAN).putInt((int) crc.getValue()).putInt(length).array());
+                member.writeTo(stream);
+                lengths.putInt(member.size());
+                dataLength += member.size();
+            }
+            stream.write(lengths.array());
+            var header = new Header(blockSize, size, blocks, dataLength).toBytes();
+            output.write(ByteBuffer.wrap(header), 0);
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private int readBlock(FileChannel input, byte[] block) throws IOException {
+        var buffer = ByteBuffer.wrap(block);
+        while(buffer.hasRemaining() && input.read(buffer) >= 0) { }
+        return buffer.position();
+    }
+
+    private Header header(String key) throws IOException {
+        try(var input = delegate.get(key, 0, HEADER_SIZE)) {
+            return Header.parse(input.readNBytes(HEADER_SIZE));
+        }
+    }
+
+    //start of every member relative to the first one, plus the end of the last
+    private long[] memberOffsets(String key, Header header) throws IOException {
+        byte[] index;
+        try(var input = delegate.get(key, HEADER_SIZE + header.dataLength(), (long) header.blocks() * Integer.BYTES)) {
+            index = input.readNBytes(header.blocks() * Integer.BYTES);
+        }
+        if(index.length != header.blocks() * Integer.BYTES) { throw new EOFException("Compressed content index is truncated"); }
+        var lengths = ByteBuffer.wrap(index);
+        var offsets = new long[header.blocks() + 1];
+        for(int block = 0; block < header.blocks(); block++) { offsets[block + 1] = offsets[block] + lengths.getInt(); }
+        return offsets;
+    }
+
+    record Header(int blockSize, long logicalSize, int blocks, long dataLength) {
+
+        //content that is stored uncompressed has no magic
+        static Header parse(byte[] bytes) throws IOException {
+            if(bytes.length < HEADER_SIZE || !Arrays.equals(bytes, 0, MAGIC.length, MAGIC, 0, MAGIC.length)) { return null; }
+            var buffer = ByteBuffer.wrap(bytes, MAGIC.length, HEADER_SIZE - MAGIC.length);
+            var header = new Header(buffer.getInt(), buffer.getLong(), buffer.getInt(), buffer.getLong());
+            if(header.blockSize() <= 0 || header.logicalSize() < 0 || header.blocks() < 0 || header.dataLength() < 0) { throw new IOException("Corrupt compression header"); }
+            return header;
+        }
+
+        byte[] toBytes() {
+            return ByteBuffer.allocate(HEADER_SIZE).put(MAGIC).putInt(blockSize).putLong(logicalSize).putInt(blocks).putLong(dataLength).array();
+        }
+    }
+
+    //holds one member and one block at a time
+    private static class InflatingInputStream extends InputStream {
+        private final InputStream source;
+        private final long[] memberOffsets;
+        private final byte[] member;
+        private final byte[] plain;
+        private final Inflater inflater = new Inflater(true);
+        private final CRC32 crc = new CRC32();
+        private int block;
+        private int skip;
+        private long remaining;
+        private int position;
+        private int limit;
+
+        InflatingInputStream(InputStream source, long[] memberOffsets, int blockSize, int block, int skip, long remaining) {
+            this.source = source;
+            this.memberOffsets = memberOffsets;
+            long largest = 0;
+            for(int index = 1; index < memberOffsets.length; index++) { largest = Math.max(largest, memberOffsets[index] - memberOffsets[index - 1]); }
+            this.member = new byte[(int) largest];
+            this.plain = new byte[blockSize];
+            this.block = block;
+            this.skip = skip;
+            this.remaining = remaining;
+        }
+
+        @Override
+        public int read() throws IOException {
+            var single = new byte[1];
+            return read(single, 0, 1) == -1 ? -1 : single[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            if(length == 0) { return 0; }
+            if(remaining <= 0) { return -1; }
+            if(position == limit && !fill()) { return -1; }
+            int count = (int) Math.min(Math.min(length, limit - position), remaining);
+            System.arraycopy(plain, position, buffer, offset, count);
+            position += count;
+            remaining -= count;
+            return count;
+        }
+
+        private boolean fill() throws IOException {
+            if(block >= memberOffsets.length - 1) { return false; }
+            int memberLength = (int) (memberOffsets[block + 1] - memberOffsets[block]);
+            if(source.readNBytes(member, 0, memberLength) != memberLength) { throw new EOFException("Compressed content is truncated"); }
+            int deflatedLength = memberLength - GZIP_HEADER.length - GZIP_TRAILER_SIZE;
+            var trailer = ByteBuffer.wrap(member, memberLength - GZIP_TRAILER_SIZE, GZIP_TRAILER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            int expectedCrc = trailer.getInt();
+            int expectedLength = trailer.getInt();
+            inflater.reset();
+            inflater.setInput(member, GZIP_HEADER.length, deflatedLength);
+            try {
+                limit = 0;
+                while(!inflater.finished() && limit < plain.length) {
+                    int inflated = inflater.inflate(plain, limit, plain.length - limit);
+                    if(inflated == 0 && (inflater.needsInput() || inflater.needsDictionary())) { throw new EOFException("Compressed content is truncated"); }
+                    limit += inflated;
+                }
+            } catch (DataFormatException exception) {
+                throw new IOException("Compressed content is corrupt", exception);
+            }
+            crc.reset();
+            crc.update(plain, 0, limit);
+            if(limit != expectedLength || (int) crc.getValue() != expectedCrc) { throw new IOException("Compressed content is corrupt"); }
+            block++;
+            position = skip;
+            skip = 0;
+            return true;
+        }
+
+        @Override
+        public void close() throws IOException {
+            inflater.end();
+            source.close();
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package project.brianle.securestorage.storage;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.util.Set;
+
+/**
+ * How blob content is compressed before it is stored, bound from {@code storage.compression}. Content is only
+ * compressed when its first block shrinks by at least {@code min-saving}.
+ */
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "storage.compression")
+public class CompressionProperties {
+    private boolean enabled = true;
+    private int level = 1;
+    private DataSize blockSize = DataSize.ofKilobytes(256);
+    private double minSaving = 0.1;
+    private Set<String> skipExtensions = Set.of();
+}
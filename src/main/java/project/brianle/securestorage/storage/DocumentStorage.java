@@ -0,0 +1,33 @@
+package project.brianle.securestorage.storage;
+
+import project.brianle.securestorage.domain.StoredObject;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+/**
+ * Where stored bytes live. Content under a key is written once and never changed in place.
+ */
+public interface DocumentStorage {
+
+    //takes ownership of the file
+    void put(String key, Path file) throws IOException;
+
+    InputStream get(String key) throws IOException;
+
+    InputStream get(String key, long offset, long length) throws IOException;
+
+    void delete(String key) throws IOException;
+
+    Optional<StoredObject> stat(String key) throws IOException;
+
+    void forEachKey(Consumer<String> action) throws IOException;
+
+    //for zero-copy transfers, empty when the content is not on local disk
+    default Optional<Path> localPath(String key) throws IOException {
+        return Optional.empty();
+    }
+}
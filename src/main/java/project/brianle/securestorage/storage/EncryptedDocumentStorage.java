@@ -0,0 +1,257 @@
+package project.brianle.securestorage.storage;
+
+import project.brianle.securestorage.domain.StoredObject;
+
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import static java.nio.file.StandardOpenOption.*;
+
+/**
+ * Seals content in fixed-size AES-GCM segments so a range read decrypts only the segments it overlaps.
+ * Uploads are spooled in plaintext to the temp directory until stored, so keep it on an encrypted volume.
+ */
+public class EncryptedDocumentStorage implements DocumentStorage {
+    private static final byte[] MAGIC = { (byte) 0x89, 'S', 'S', 'E', '\r', '\n', 0x1A, 0x01 };
+    private static final int NONCE_PREFIX_LENGTH = 7;
+    private static final int TAG_LENGTH = 16;
+    static final int HEADER_SIZE = MAGIC.length + Integer.BYTES + Long.BYTES + MasterKeyRing.KEY_ID_LENGTH + NONCE_PREFIX_LENGTH + MasterKeyRing.WRAPPED_KEY_LENGTH;
+    private final SecureRandom random = new SecureRandom();
+    private final DocumentStorage delegate;
+    private final MasterKeyRing keyRing;
+    private final Supplier<Path> tempFiles;
+    private final int segmentSize;
+
+    public EncryptedDocumentStorage(DocumentStorage delegate, MasterKeyRing keyRing, Supplier<Path> tempFiles, int segmentSize) {
+        if(!keyRing.isConfigured()) { throw new IllegalStateException("STORAGE_MASTER_KEY (storage.encryption.master-key) must be set when encryption is enabled, generate one with 'openssl rand -base64 32' or set STORAGE_ENCRYPTION_ENABLED=false"); }
+        this.delegate = delegate;
+        this.keyRing = keyRing;
+        this.tempFiles = tempFiles;
+        this.segmentSize = segmentSize;
+    }
+
+    @Override
+    public void put(String key, Path file) throws IOException {
+        var encrypted = tempFiles.get();
+        try {
+            //the plaintext file is removed as soon as its encrypted copy is complete
+            encrypt(file, encrypted);
+            Files.delete(file);
+            delegate.put(key, encrypted);
+        } finally {
+            Files.deleteIfExists(encrypted);
+        }
+    }
+
+    @Override
+    public InputStream get(String key) throws IOException {
+        var source = delegate.get(key);
+        var bytes = source.readNBytes(HEADER_SIZE);
+        var header = Header.parse(bytes);
+        if(header == null) { return new SequenceInputStream(new ByteArrayInputStream(bytes), source); }
+        return new DecryptingInputStream(source, header, unwrap(header), 0, 0, header.plaintextSize());
+    }
+
+    @Override
+    public InputStream get(String key, long offset, long length) throws IOException {
+        byte[] bytes;
+        try(var source = delegate.get(key, 0, HEADER_SIZE)) {
+            bytes = source.readNBytes(HEADER_SIZE);
+        }
+        var header = Header.parse(bytes);
+        if(header == null) { return delegate.get(key, offset, length); }
+        length = Math.min(length, header.plaintextSize() - offset);
+        if(length <= 0) { return InputStream.nullInputStream(); }
+        long first = offset / header.segmentSize();
+        long last = (offset + length - 1) / header.segmentSize();
+        long start = header.cipherOffset(first);
+        var source = delegate.get(key, start, header.cipherOffset(last + 1) - start);
+        return new DecryptingInputStream(source, header, unwrap(header), first, (int) (offset % header.segmentSize()), length);
+    }
+
+    @Override
+    public void delete(String key) throws IOException {
+        delegate.delete(key);
+    }
+
+    @Override
+    public void forEachKey(Consumer<String> action) throws IOException {
+        delegate.forEachKey(action);
+    }
+
+    //reports the stored object, header and tags included
+    @Override
+    public Optional<StoredObject> stat(String key) throws IOException {
+        return delegate.stat(key);
+    }
+
+    private void encrypt(Path source, Path target) throws IOException {
+        try(var input = FileChannel.open(source, READ); var output = FileChannel.open(target, CREATE_NEW, WRITE)) {
+            long size = input.size();
+            var dataKey = keyRing.newDataKey();
+            var noncePrefix = new byte[NONCE_PREFIX_LENGTH];
+            random.nextBytes(noncePrefix);
+            var header = new Header(segmentSize, size, keyRing.currentKeyId(), noncePrefix, keyRing.wrap(dataKey));
+            var headerBytes = header.toBytes();
+            writeFully(output, ByteBuffer.wrap(headerBytes));
+            var plain = ByteBuffer.allocate(segmentSize);
+            var sealed = ByteBuffer.allocate(segmentSize + TAG_LENGTH);
+            var cipher = Cipher.getInstance("AES/GCM/NoPadding");
+            long segments = header.segments();
+            for(long segment = 0; segment < segments; segment++) {
+                plain.clear().limit(header.plaintextLength(segment));
+                while(plain.hasRemaining()) {
+                    if(input.read(plain) < 0) { throw new EOFException("File changed while it was being encrypted"); }
+                }
+                plain.flip();
+                sealed.clear();
+                cipher.init(Cipher.ENCRYPT_MODE, dataKey, header.nonce(segment));
+                cipher.updateAAD(headerBytes);
+                cipher.doFinal(plain, sealed);
+                writeFully(output, sealed.flip());
+            }
+        } catch (GeneralSecurityException exception) {
+            throw new IOException("Unable to encrypt content", exception);
+        }
+    }
+
+    private SecretKey unwrap(Header header) throws IOException {
+        try {
+            return keyRing.unwrap(header.keyId(), header.wrappedKey());
+        } catch (GeneralSecurityException exception) {
+            throw new IOException("Unable to unwrap the data key", exception);
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while(buffer.hasRemaining()) { channel.write(buffer); }
+    }
+
+    record Header(int segmentSize, long plaintextSize, byte[] keyId, byte[] noncePrefix, byte[] wrappedKey) {
+
+        //content that was stored before encryption has no magic
+        static Header parse(byte[] bytes) throws IOException {
+            if(bytes.length < HEADER_SIZE || !Arrays.equals(bytes, 0, MAGIC.length, MAGIC, 0, MAGIC.length)) { return null; }
+            var buffer = ByteBuffer.wrap(bytes, MAGIC.length, HEADER_SIZE - MAGIC.length);
+            int segmentSize = buffer.getInt();
+            long plaintextSize = buffer.getLong();
+            if(segmentSize <= 0 || plaintextSize < 0) { throw new IOException("Corrupt encryption header"); }
+            var keyId = new byte[MasterKeyRing.KEY_ID_LENGTH];
+            var noncePrefix = new byte[NONCE_PREFIX_LENGTH];
+            var wrappedKey = new byte[MasterKeyRing.WRAPPED_KEY_LENGTH];
+            buffer.get(keyId).get(noncePrefix).get(wrappedKey);
+            return new Header(segmentSize, plaintextSize, keyId, noncePrefix, wrappedKey);
+        }
+
+        byte[] toBytes() {
+            return ByteBuffer.allocate(HEADER_SIZE).put(MAGIC).putInt(segmentSize).putLong(plaintextSize)
+                    .put(keyId).put(noncePrefix).put(wrappedKey).array();
+        }
+
+        //empty content still gets one (empty) segment, so truncating everything after the header is detected
+        long segments() {
+            return Math.max(1, (plaintextSize + segmentSize - 1) / segmentSize);
+        }
+
+        int plaintextLength(long segment) {
+            return (int) Math.min(segmentSize, plaintextSize - segment * segmentSize);
+        }
+
+        //where a segment starts in the stored object; one past the last segment is the end of the object
+        long cipherOffset(long segment) {
+            if(segment < segments()) { return HEADER_SIZE + segment * (segmentSize + TAG_LENGTH); }
+            return cipherOffset(segments() - 1) + plaintextLength(segments() - 1) + TAG_LENGTH;
+        }
+
+        //the nonce carries the segment index and a last-segment flag, so reordering or truncation fails authentication
+        GCMParameterSpec nonce(long segment) {
+            var nonce = ByteBuffer.allocate(12).put(noncePrefix).putInt((int) segment).put((byte) (segment == segments() - 1 ? 1 : 0));
+            return new GCMParameterSpec(TAG_LENGTH * 8, nonce.array());
+        }
+    }
+
+    //holds one sealed and one plain segment at a time
+    private static class DecryptingInputStream extends InputStream {
+        private final InputStream source;
+        private final Header header;
+        private final SecretKey dataKey;
+        private final byte[] headerBytes;
+        private final byte[] sealed;
+        private final byte[] plain;
+        private final Cipher cipher;
+        private long segment;
+        private int skip;
+        private long remaining;
+        private int position;
+        private int limit;
+
+        DecryptingInputStream(InputStream source, Header header, SecretKey dataKey, long segment, int skip, long remaining) throws IOException {
+            this.source = source;
+            this.header = header;
+            this.dataKey = dataKey;
+            this.headerBytes = header.toBytes();
+            this.sealed = new byte[header.segmentSize() + TAG_LENGTH];
+            this.plain = new byte[header.segmentSize()];
+            this.segment = segment;
+            this.skip = skip;
+            this.remaining = remaining;
+            try {
+                this.cipher = Cipher.getInstance("AES/GCM/NoPadding");
+            } catch (GeneralSecurityException exception) {
+                throw new IOException(exception);
+            }
+        }
+
+        @Override
+        public int read() throws IOException {
+            var single = new byte[1];
+            return read(single, 0, 1) == -1 ? -1 : single[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            if(length == 0) { return 0; }
+            if(remaining <= 0) { return -1; }
+            if(position == limit && !fill()) { return -1; }
+            int count = (int) Math.min(Math.min(length, limit - position), remaining);
+            System.arraycopy(plain, position, buffer, offset, count);
+            position += count;
+            remaining -= count;
+            return count;
+        }
+
+        private boolean fill() throws IOException {
+            if(segment >= header.segments()) { return false; }
+            int sealedLength = header.plaintextLength(segment) + TAG_LENGTH;
+            if(source.readNBytes(sealed, 0, sealedLength) != sealedLength) { throw new EOFException("Stored content is truncated"); }
+            try {
+                cipher.init(Cipher.DECRYPT_MODE, dataKey, header.nonce(segment));
+                cipher.updateAAD(headerBytes);
+                limit = cipher.doFinal(sealed, 0, sealedLength, plain, 0);
+            } catch (GeneralSecurityException exception) {
+                throw new IOException("Stored content failed authentication", exception);
+            }
+            segment++;
+            position = skip;
+            skip = 0;
+            return true;
+        }
+
+        @Override
+        public void close() throws IOException {
+            source.close();
+        }
+    }
+}
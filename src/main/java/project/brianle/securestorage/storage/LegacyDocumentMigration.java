@@ -0,0 +1,78 @@
+package project.brianle.securestorage.storage;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import project.brianle.securestorage.domain.StoredContent;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import static project.brianle.securestorage.constant.Constants.FILE_STORAGE;
+import static project.brianle.securestorage.utils.DocumentUtils.digest;
+
+/**
+ * Moves documents that were stored under their display name into the blob store, so no document is located by
+ * its name any more. Runs once all beans are ready but before the server accepts requests, which keeps renames
+ * from racing the move; once everything is migrated it costs one query per start.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class LegacyDocumentMigration implements SmartInitializingSingleton {
+    private static final String SELECT_LEGACY_NAMES = "SELECT DISTINCT name FROM documents WHERE checksum IS NULL OR checksum NOT IN (SELECT hash FROM blobs)";
+    private static final String SELECT_LEGACY_IDS = "SELECT id FROM documents WHERE name = ? AND (checksum IS NULL OR checksum NOT IN (SELECT hash FROM blobs))";
+    private static final String UPDATE_CONTENT = "UPDATE documents SET checksum = ?, size = ? WHERE id = ?";
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final BlobStore blobStore;
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        var names = jdbcTemplate.queryForList(SELECT_LEGACY_NAMES, String.class);
+        if(names.isEmpty()) { return; }
+        log.info("Moving {} name-addressed document file(s) into the blob store", names.size());
+        var storage = Paths.get(FILE_STORAGE).toAbsolutePath().normalize();
+        names.forEach(name -> {
+            var file = storage.resolve(name).normalize();
+            if(!file.startsWith(storage) || !Files.isRegularFile(file)) {
+                log.warn("No stored file for document name {}, leaving it unmigrated", name);
+                return;
+            }
+            try {
+                migrate(name, file);
+            } catch (Exception exception) {
+                log.error("Unable to migrate document {}: {}", name, exception.getMessage());
+            }
+        });
+    }
+
+    //documents sharing a name used to overwrite one file, so they all reference whatever that file holds now
+    private void migrate(String name, Path file) throws IOException {
+        StoredContent content;
+        try(var input = Files.newInputStream(file)) {
+            content = digest(input);
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            boolean store = false;
+            for(Long id : jdbcTemplate.queryForList(SELECT_LEGACY_IDS, Long.class, name)) {
+                store |= blobStore.acquire(content.checksum(), content.size());
+                jdbcTemplate.update(UPDATE_CONTENT, content.checksum(), content.size(), id);
+            }
+            try {
+                if(store) {
+                    blobStore.commit(file, content.checksum(), name);
+                } else {
+                    Files.deleteIfExists(file);
+                }
+            } catch (IOException exception) {
+                throw new IllegalStateException(exception);
+            }
+        });
+    }
+}
@@ -0,0 +1,152 @@
+package project.brianle.securestorage.storage;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.io.input.BoundedInputStream;
+import project.brianle.securestorage.domain.StoredObject;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.nio.file.StandardOpenOption.READ;
+
+/**
+ * Stores content in a {@link ShardedDirectory}, renamed into place so a key never holds partial content.
+ */
+@Slf4j
+public class LocalDocumentStorage implements DocumentStorage {
+    private final ShardedDirectory directory;
+    private final Path temp;
+
+    public LocalDocumentStorage(ShardedDirectory directory, Path temp) throws IOException {
+        this.directory = directory;
+        this.temp = temp;
+        Files.createDirectories(temp);
+    }
+
+    public ShardedDirectory getDirectory() {
+        return directory;
+    }
+
+    public Path getTemp() {
+        return temp;
+    }
+
+    public Path newTempFile() {
+        return temp.resolve(UUID.randomUUID() + ".tmp");
+    }
+
+    public void deleteTempFiles(Instant cutoff) {
+        var threshold = FileTime.from(cutoff);
+        try(var files = Files.list(temp)) {
+            files.filter(file -> {
+                try {
+                    return Files.getLastModifiedTime(file).compareTo(threshold) < 0;
+                } catch (IOException exception) {
+                    return false;
+                }
+            }).forEach(file -> file.toFile().delete());
+        } catch (IOException exception) {
+            log.error("Unable to clean temporary files: {}", exception.getMessage());
+        }
+    }
+
+    //concurrent puts of one key carry identical content, so the last rename wins harmlessly
+    @Override
+    public void put(String key, Path file) throws IOException {
+        Files.move(file, directory.prepare(key), ATOMIC_MOVE, REPLACE_EXISTING);
+    }
+
+    @Override
+    public InputStream get(String key) throws IOException {
+        return Files.newInputStream(directory.locate(key));
+    }
+
+    @Override
+    public InputStream get(String key, long offset, long length) throws IOException {
+        var channel = FileChannel.open(directory.locate(key), READ).position(offset);
+        return BoundedInputStream.builder().setInputStream(Channels.newInputStream(channel)).setMaxCount(length).get();
+    }
+
+    @Override
+    public void delete(String key) throws IOException {
+        directory.delete(key);
+    }
+
+    @Override
+    public Optional<StoredObject> stat(String key) throws IOException {
+        try {
+            var attributes = Files.readAttributes(directory.locate(key), BasicFileAttributes.class);
+            return Optional.of(new StoredObject(attributes.size(), attributes.lastModifiedTime().toInstant()));
+        } catch (NoSuchFileException exception) {
+            return Optional.empty();
+        }
+    }
+
+    @Override
+    public Optional<Path> localPath(String key) {
+        return directory.exists(key) ? Optional.of(directory.locate(key)) : Optional.empty();
+    }
+
+    //content never changes in place, so the modification time doubles as the last access, even under noatime
+    public void touch(String key, Duration interval) {
+        try {
+            var file = directory.locate(key);
+            var now = Instant.now();
+            if(Files.getLastModifiedTime(file).toInstant().isBefore(now.minus(interval))) {
+                Files.setLastModifiedTime(file, FileTime.from(now));
+            }
+        } catch (IOException exception) {
+            //a missed touch only makes the content look idler than it is
+        }
+    }
+
+    public Instant lastAccess(String key) throws IOException {
+        return Files.getLastModifiedTime(directory.locate(key)).toInstant();
+    }
+
+    @Override
+    public void forEachKey(Consumer<String> action) throws IOException {
+        walk(attributes -> true, action);
+    }
+
+    public void forEachIdle(Instant cutoff, Consumer<String> action) throws IOException {
+        var threshold = FileTime.from(cutoff);
+        walk(attributes -> attributes.lastModifiedTime().compareTo(threshold) < 0, action);
+    }
+
+    private void walk(Predicate<BasicFileAttributes> filter, Consumer<String> action) throws IOException {
+        if(!Files.isDirectory(directory.getRoot())) { return; }
+        Files.walkFileTree(directory.getRoot(), new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attributes) {
+                return dir.equals(temp) ? FileVisitResult.SKIP_SUBTREE : FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) {
+                if(attributes.isRegularFile() && filter.test(attributes)) {
+                    action.accept(file.getFileName().toString());
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(Path file, IOException exception) {
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+}
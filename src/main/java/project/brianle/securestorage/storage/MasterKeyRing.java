@@ -0,0 +1,104 @@
+package project.brianle.securestorage.storage;
+
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.*;
+
+import static java.util.Collections.unmodifiableMap;
+
+/**
+ * Master keys that wrap the per-blob data keys, addressed by an id stored with every blob.
+ * {@code storage.encryption.master-key} wraps new data keys; every key in {@code previous-master-keys} still
+ * unwraps, so the master key can be rotated without re-encrypting content.
+ */
+@Component
+public class MasterKeyRing {
+    public static final int KEY_ID_LENGTH = 8;
+    public static final int WRAPPED_KEY_LENGTH = 12 + 32 + 16;
+    private static final int TAG_BITS = 128;
+    private final SecureRandom random = new SecureRandom();
+    private final String masterKey;
+    private final List<String> previousMasterKeys;
+    private byte[] currentKeyId;
+    private SecretKey currentKey;
+    private Map<String, SecretKey> keys;
+
+    public MasterKeyRing(@Value("${storage.encryption.master-key:}") String masterKey,
+                         @Value("${storage.encryption.previous-master-keys:}") List<String> previousMasterKeys) {
+        this.masterKey = masterKey;
+        this.previousMasterKeys = previousMasterKeys;
+    }
+
+    @PostConstruct
+    public void init() {
+        var ring = new LinkedHashMap<String, SecretKey>();
+        if(!masterKey.isBlank()) {
+            currentKey = decode(masterKey);
+            currentKeyId = keyId(currentKey);
+            ring.put(HexFormat.of().formatHex(currentKeyId), currentKey);
+        }
+        previousMasterKeys.stream()
+                .filter(key -> !key.isBlank())
+                .map(MasterKeyRing::decode)
+                .forEach(key -> ring.putIfAbsent(HexFormat.of().formatHex(keyId(key)), key));
+        keys = unmodifiableMap(ring);
+    }
+
+    public boolean isConfigured() {
+        return currentKey != null;
+    }
+
+    public byte[] currentKeyId() {
+        return currentKeyId.clone();
+    }
+
+    public SecretKey newDataKey() {
+        var key = new byte[32];
+        random.nextBytes(key);
+        return new SecretKeySpec(key, "AES");
+    }
+
+    //the key id is authenticated with the wrapped key, so a header cannot point a data key at another master key
+    public byte[] wrap(SecretKey dataKey) throws GeneralSecurityException {
+        var iv = new byte[12];
+        random.nextBytes(iv);
+        var cipher = Cipher.getInstance("AES/GCM/NoPadding");
+        cipher.init(Cipher.ENCRYPT_MODE, currentKey, new GCMParameterSpec(TAG_BITS, iv));
+        cipher.updateAAD(currentKeyId);
+        var wrapped = Arrays.copyOf(iv, WRAPPED_KEY_LENGTH);
+        cipher.doFinal(dataKey.getEncoded(), 0, 32, wrapped, iv.length);
+        return wrapped;
+    }
+
+    public SecretKey unwrap(byte[] keyId, byte[] wrapped) throws GeneralSecurityException {
+        var masterKey = keys.get(HexFormat.of().formatHex(keyId));
+        if(masterKey == null) { throw new GeneralSecurityException("Unknown master key " + HexFormat.of().formatHex(keyId)); }
+        var cipher = Cipher.getInstance("AES/GCM/NoPadding");
+        cipher.init(Cipher.DECRYPT_MODE, masterKey, new GCMParameterSpec(TAG_BITS, wrapped, 0, 12));
+        cipher.updateAAD(keyId);
+        return new SecretKeySpec(cipher.doFinal(wrapped, 12, wrapped.length - 12), "AES");
+    }
+
+    private static SecretKey decode(String key) {
+        var bytes = Base64.getDecoder().decode(key.trim());
+        if(bytes.length != 32) { throw new IllegalStateException("Storage master keys must be 256-bit, base64 encoded"); }
+        return new SecretKeySpec(bytes, "AES");
+    }
+
+    private static byte[] keyId(SecretKey key) {
+        try {
+            return Arrays.copyOf(MessageDigest.getInstance("SHA-256").digest(key.getEncoded()), KEY_ID_LENGTH);
+        } catch (GeneralSecurityException exception) {
+            throw new IllegalStateException(exception);
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package project.brianle.securestorage.storage;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.regex.Pattern;
+
+import static project.brianle.securestorage.constant.Constants.FILE_STORAGE;
+
+/**
+ * Profile photos, kept in local storage sharded by a hash of their file name under {@code FILE_STORAGE}. Photos
+ * saved before sharding are still served from the top of {@code FILE_STORAGE} until the layout migration has
+ * moved them.
+ */
+@Component
+public class PhotoStore {
+    private static final Pattern PHOTO_NAME = Pattern.compile("[0-9a-f]{8}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{12}\\.png");
+    private final LocalDocumentStorage storage;
+
+    public PhotoStore(@Value("${storage.layout.depth:2}") int depth) throws IOException {
+        var root = Paths.get(FILE_STORAGE).toAbsolutePath().normalize();
+        this.storage = new LocalDocumentStorage(ShardedDirectory.ofNames(root, depth), root.resolve("tmp"));
+    }
+
+    public void save(String filename, InputStream content) throws IOException {
+        var tempFile = storage.newTempFile();
+        try {
+            Files.copy(content, tempFile);
+            storage.put(filename, tempFile);
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
+    //only the file name part is used, so a request can never reach outside the store
+    public byte[] read(String filename) throws IOException {
+        try(var content = storage.get(Path.of(filename).getFileName().toString())) {
+            return content.readAllBytes();
+        }
+    }
+
+    public ShardedDirectory getDirectory() {
+        return storage.getDirectory();
+    }
+
+    //the top of FILE_STORAGE also holds other files, so only names shaped like photos are migrated
+    public static boolean isPhotoName(String filename) {
+        return PHOTO_NAME.matcher(filename).matches();
+    }
+}
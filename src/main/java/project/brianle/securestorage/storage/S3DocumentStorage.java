@@ -0,0 +1,179 @@
+package project.brianle.securestorage.storage;
+
+import project.brianle.securestorage.domain.StoredObject;
+import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.auth.credentials.DefaultCredentialsProvider;
+import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import org.apache.commons.io.input.BoundedInputStream;
+import software.amazon.awssdk.core.exception.SdkException;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.CompletedPart;
+import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
+import software.amazon.awssdk.services.s3.model.S3Exception;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+import static java.nio.file.StandardOpenOption.READ;
+import static org.springframework.util.StringUtils.hasText;
+
+/**
+ * Stores content as objects in an S3-compatible bucket, surfacing SDK failures as {@link IOException}s.
+ */
+public class S3DocumentStorage implements DocumentStorage, Closeable {
+    private static final long MAX_SINGLE_PUT = 5L * 1024 * 1024 * 1024;
+    private static final long MIN_PART_SIZE = 5L * 1024 * 1024;
+    private static final int MAX_PARTS = 10_000;
+    private final S3Client client;
+    private final String bucket;
+    private final String prefix;
+    private final long multipartThreshold;
+    private final long partSize;
+
+    public S3DocumentStorage(S3Properties properties) {
+        if(!hasText(properties.getBucket())) { throw new IllegalStateException("storage.s3.bucket must be set"); }
+        var builder = S3Client.builder()
+                .region(Region.of(properties.getRegion()))
+                .forcePathStyle(properties.isPathStyle())
+                .credentialsProvider(hasText(properties.getAccessKey())
+                        ? StaticCredentialsProvider.create(AwsBasicCredentials.create(properties.getAccessKey(), properties.getSecretKey()))
+                        : DefaultCredentialsProvider.create());
+        if(hasText(properties.getEndpoint())) { builder.endpointOverride(URI.create(properties.getEndpoint())); }
+        this.client = builder.build();
+        this.bucket = properties.getBucket();
+        this.prefix = properties.getPrefix() == null ? "" : properties.getPrefix();
+        this.multipartThreshold = Math.min(properties.getMultipartThreshold().toBytes(), MAX_SINGLE_PUT);
+        this.partSize = Math.max(properties.getPartSize().toBytes(), MIN_PART_SIZE);
+    }
+
+    @Override
+    public void put(String key, Path file) throws IOException {
+        long size = Files.size(file);
+        try {
+            if(size > multipartThreshold) {
+                putMultipart(key, file, size);
+            } else {
+                client.putObject(request -> request.bucket(bucket).key(prefix + key), RequestBody.fromFile(file));
+            }
+        } catch (SdkException | UncheckedIOException exception) {
+            throw new IOException("Unable to store " + key, exception);
+        }
+        Files.deleteIfExists(file);
+    }
+
+    private void putMultipart(String key, Path file, long size) {
+        //S3 allows at most 10,000 parts, so very large content needs larger parts
+        long partLength = Math.max(partSize, (size + MAX_PARTS - 1) / MAX_PARTS);
+        var uploadId = client.createMultipartUpload(request -> request.bucket(bucket).key(prefix + key)).uploadId();
+        try {
+            var parts = new ArrayList<CompletedPart>();
+            for(int number = 1; (long) (number - 1) * partLength < size; number++) {
+                long offset = (number - 1) * partLength;
+                long length = Math.min(partLength, size - offset);
+                int partNumber = number;
+                //the provider opens a fresh stream on every call, so the SDK can retry a part
+                var body = RequestBody.fromContentProvider(() -> openPart(file, offset, length), length, "application/octet-stream");
+                var eTag = client.uploadPart(request -> request.bucket(bucket).key(prefix + key).uploadId(uploadId).partNumber(partNumber), body).eTag();
+                parts.add(CompletedPart.builder().partNumber(partNumber).eTag(eTag).build());
+            }
+            client.completeMultipartUpload(request -> request.bucket(bucket).key(prefix + key).uploadId(uploadId)
+                    .multipartUpload(upload -> upload.parts(parts)));
+        } catch (SdkException | UncheckedIOException exception) {
+            //parts of an unfinished upload are billed until it is aborted
+            try {
+                client.abortMultipartUpload(request -> request.bucket(bucket).key(prefix + key).uploadId(uploadId));
+            } catch (SdkException abortException) {
+                exception.addSuppressed(abortException);
+            }
+            throw exception;
+        }
+    }
+
+    private static InputStream openPart(Path file, long offset, long length) {
+        try {
+            var channel = FileChannel.open(file, READ);
+            try {
+                channel.position(offset);
+                return BoundedInputStream.builder().setInputStream(Channels.newInputStream(channel)).setMaxCount(length).get();
+            } catch (IOException exception) {
+                channel.close();
+                throw exception;
+            }
+        } catch (IOException exception) {
+            throw new UncheckedIOException(exception);
+        }
+    }
+
+    @Override
+    public InputStream get(String key) throws IOException {
+        try {
+            return client.getObject(request -> request.bucket(bucket).key(prefix + key));
+        } catch (NoSuchKeyException exception) {
+            throw new NoSuchFileException(key);
+        } catch (SdkException exception) {
+            throw new IOException("Unable to read " + key, exception);
+        }
+    }
+
+    @Override
+    public InputStream get(String key, long offset, long length) throws IOException {
+        try {
+            return client.getObject(request -> request.bucket(bucket).key(prefix + key).range("bytes=" + offset + "-" + (offset + length - 1)));
+        } catch (NoSuchKeyException exception) {
+            throw new NoSuchFileException(key);
+        } catch (SdkException exception) {
+            throw new IOException("Unable to read " + key, exception);
+        }
+    }
+
+    @Override
+    public void delete(String key) throws IOException {
+        try {
+            client.deleteObject(request -> request.bucket(bucket).key(prefix + key));
+        } catch (SdkException exception) {
+            throw new IOException("Unable to delete " + key, exception);
+        }
+    }
+
+    @Override
+    public Optional<StoredObject> stat(String key) throws IOException {
+        try {
+            var head = client.headObject(request -> request.bucket(bucket).key(prefix + key));
+            return Optional.of(new StoredObject(head.contentLength(), head.lastModified()));
+        } catch (S3Exception exception) {
+            //HEAD responses carry no body, so a missing object is only recognisable by its status
+            if(exception.statusCode() == 404) { return Optional.empty(); }
+            throw new IOException("Unable to read " + key, exception);
+        } catch (SdkException exception) {
+            throw new IOException("Unable to read " + key, exception);
+        }
+    }
+
+    @Override
+    public void forEachKey(Consumer<String> action) throws IOException {
+        try {
+            client.listObjectsV2Paginator(request -> request.bucket(bucket).prefix(prefix)).contents()
+                    .forEach(object -> action.accept(object.key().substring(prefix.length())));
+        } catch (SdkException exception) {
+            throw new IOException("Unable to list " + bucket, exception);
+        }
+    }
+
+    @Override
+    public void close() {
+        client.close();
+    }
+}
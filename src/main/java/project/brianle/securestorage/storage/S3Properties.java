@@ -0,0 +1,29 @@
+package project.brianle.securestorage.storage;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+/**
+ * Connection to an S3-compatible bucket, bound from {@code storage.s3}. Set {@code endpoint} and
+ * {@code path-style} for stand-ins such as MinIO; leave the keys empty to use the default AWS credential chain.
+ * Content larger than {@code multipart-threshold} is uploaded in parts of {@code part-size}, since a single PUT
+ * is capped at 5GB.
+ */
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "storage.s3")
+public class S3Properties {
+    private String endpoint;
+    private String region = "us-east-1";
+    private String bucket;
+    private String accessKey;
+    private String secretKey;
+    private boolean pathStyle;
+    private String prefix = "blobs/";
+    private DataSize multipartThreshold = DataSize.ofMegabytes(100);
+    private DataSize partSize = DataSize.ofMegabytes(64);
+}
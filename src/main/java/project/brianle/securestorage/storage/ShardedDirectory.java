@@ -0,0 +1,115 @@
+package project.brianle.securestorage.storage;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.FileSystemException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
+
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+
+/**
+ * Spreads the files of one directory over two-hex-digit subdirectories, e.g. {@code ab/cd/<name>} at depth 2.
+ */
+public class ShardedDirectory {
+    public static final int MAX_DEPTH = 8;
+    private final Path root;
+    private final int depth;
+    private final UnaryOperator<String> fingerprint;
+
+    public ShardedDirectory(Path root, int depth, UnaryOperator<String> fingerprint) {
+        if(depth < 0 || depth > MAX_DEPTH) { throw new IllegalArgumentException("Shard depth must be between 0 and " + MAX_DEPTH); }
+        this.root = root;
+        this.depth = depth;
+        this.fingerprint = fingerprint;
+    }
+
+    public static ShardedDirectory ofHashes(Path root, int depth) {
+        return new ShardedDirectory(root, depth, UnaryOperator.identity());
+    }
+
+    public static ShardedDirectory ofNames(Path root, int depth) {
+        return new ShardedDirectory(root, depth, ShardedDirectory::sha256);
+    }
+
+    public Path getRoot() {
+        return root;
+    }
+
+    public Path sharded(String name) {
+        var hex = fingerprint.apply(name);
+        var directory = root;
+        for(int level = 0; level < depth; level++) {
+            directory = directory.resolve(hex.substring(level * 2, level * 2 + 2));
+        }
+        return directory.resolve(name);
+    }
+
+    public Path flat(String name) {
+        return root.resolve(name);
+    }
+
+    //files written before sharding stay readable flat until they are migrated
+    public Path locate(String name) {
+        var sharded = sharded(name);
+        if(depth == 0 || Files.exists(sharded)) { return sharded; }
+        var flat = flat(name);
+        return Files.exists(flat) ? flat : sharded;
+    }
+
+    public boolean exists(String name) {
+        return Files.exists(sharded(name)) || (depth > 0 && Files.exists(flat(name)));
+    }
+
+    public Path prepare(String name) throws IOException {
+        var sharded = sharded(name);
+        Files.createDirectories(sharded.getParent());
+        return sharded;
+    }
+
+    public void delete(String name) throws IOException {
+        Files.deleteIfExists(sharded(name));
+        if(depth > 0) { Files.deleteIfExists(flat(name)); }
+    }
+
+    public List<String> flatNames(Predicate<String> filter) throws IOException {
+        if(depth == 0 || !Files.isDirectory(root)) { return List.of(); }
+        try(var files = Files.list(root)) {
+            return files.filter(Files::isRegularFile).map(file -> file.getFileName().toString()).filter(filter).toList();
+        }
+    }
+
+    //links before unlinking, so a reader checking the shard and then the flat name always finds the file
+    public boolean migrate(String name) throws IOException {
+        var flat = flat(name);
+        if(depth == 0 || !Files.exists(flat)) { return false; }
+        var sharded = prepare(name);
+        try {
+            Files.createLink(sharded, flat);
+        } catch (FileAlreadyExistsException exception) {
+            //written through the sharded layout since, so the flat copy is stale
+        } catch (UnsupportedOperationException | FileSystemException exception) {
+            if(exception instanceof FileSystemException && !Files.exists(flat)) { return false; }
+            //no hard links on this file system: a rename is still atomic, but a reader can miss the file in between its two checks
+            Files.move(flat, sharded, ATOMIC_MOVE);
+            return true;
+        }
+        Files.deleteIfExists(flat);
+        return true;
+    }
+
+    private static String sha256(String name) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(name.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException exception) {
+            throw new IllegalStateException(exception);
+        }
+    }
+}
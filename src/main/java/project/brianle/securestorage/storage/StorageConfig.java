@@ -0,0 +1,44 @@
+package project.brianle.securestorage.storage;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.time.Duration;
+
+import static project.brianle.securestorage.constant.Constants.FILE_STORAGE;
+
+/**
+ * Selects where blob content is kept with {@code storage.backend}: {@code local} disk, an {@code s3} bucket, or
+ * {@code tiered} between the two. Local storage always exists, as the home of temp files and the hot tier.
+ * Encryption is applied on top of the chosen backend by {@link BlobStore}.
+ */
+@Configuration
+public class StorageConfig {
+
+    @Bean
+    public LocalDocumentStorage localDocumentStorage(@Value("${storage.layout.depth:2}") int depth) throws IOException {
+        var root = Paths.get(FILE_STORAGE).toAbsolutePath().normalize().resolve("blobs");
+        return new LocalDocumentStorage(ShardedDirectory.ofHashes(root, depth), root.resolve("tmp"));
+    }
+
+    @Bean
+    @Primary
+    @ConditionalOnProperty(name = "storage.backend", havingValue = "s3")
+    public S3DocumentStorage s3DocumentStorage(S3Properties properties) {
+        return new S3DocumentStorage(properties);
+    }
+
+    @Bean
+    @Primary
+    @ConditionalOnProperty(name = "storage.backend", havingValue = "tiered")
+    public TieredDocumentStorage tieredDocumentStorage(LocalDocumentStorage localDocumentStorage, S3Properties properties,
+                                                       @Value("${storage.tiering.idle-after:30d}") Duration idleAfter,
+                                                       @Value("${storage.tiering.touch-interval:1h}") Duration touchInterval) {
+        return new TieredDocumentStorage(localDocumentStorage, new S3DocumentStorage(properties), idleAfter, touchInterval);
+    }
+}
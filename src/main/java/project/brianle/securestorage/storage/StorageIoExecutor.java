@@ -0,0 +1,44 @@
+package project.brianle.securestorage.storage;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.*;
+
+/**
+ * Bounded pool for document disk I/O. It is deliberately not an {@code Executor} bean so it never replaces
+ * the application task executor used by {@code @Async}. When every thread is busy and the queue is full,
+ * the submitting request thread runs the task itself, which throttles the upload instead of failing it.
+ */
+@Component
+public class StorageIoExecutor {
+    private final ThreadPoolExecutor executor;
+
+    public StorageIoExecutor(MeterRegistry meterRegistry,
+                             @Value("${storage.io.pool-size:8}") int poolSize,
+                             @Value("${storage.io.queue-capacity:256}") int queueCapacity) {
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), new CustomizableThreadFactory("storage-io-"), new ThreadPoolExecutor.CallerRunsPolicy());
+        Gauge.builder("storage.io.queue.depth", executor, pool -> pool.getQueue().size()).register(meterRegistry);
+        Gauge.builder("storage.io.active", executor, ThreadPoolExecutor::getActiveCount).register(meterRegistry);
+    }
+
+    public <T> CompletableFuture<T> submit(Callable<T> task) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return task.call();
+            } catch (Exception exception) {
+                throw new CompletionException(exception);
+            }
+        }, executor);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,71 @@
+package project.brianle.securestorage.storage;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+/**
+ * Moves files left in the flat layout into their shards once the application is serving. The work runs on its
+ * own small pool so it neither delays startup nor competes with uploads for the storage I/O pool. Reads keep
+ * working throughout because both stores resolve a file through its shard first and its flat name second.
+ * Each start only has to list the two roots once everything has been moved.
+ */
+@Slf4j
+@Component
+public class StorageLayoutMigration {
+    private final LocalDocumentStorage blobStorage;
+    private final PhotoStore photoStore;
+    private final boolean enabled;
+    private final int threads;
+
+    public StorageLayoutMigration(LocalDocumentStorage blobStorage, PhotoStore photoStore,
+                                  @Value("${storage.layout.migration.enabled:true}") boolean enabled,
+                                  @Value("${storage.layout.migration.threads:4}") int threads) {
+        this.blobStorage = blobStorage;
+        this.photoStore = photoStore;
+        this.enabled = enabled;
+        this.threads = threads;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if(!enabled) { return; }
+        var executor = Executors.newFixedThreadPool(threads, new CustomizableThreadFactory("storage-layout-"));
+        CompletableFuture.allOf(
+                migrate(blobStorage.getDirectory(), name -> name.length() == 64, executor),
+                migrate(photoStore.getDirectory(), PhotoStore::isPhotoName, executor)
+        ).whenComplete((result, exception) -> executor.shutdown());
+    }
+
+    private CompletableFuture<Void> migrate(ShardedDirectory directory, Predicate<String> filter, ExecutorService executor) {
+        try {
+            var names = directory.flatNames(filter);
+            if(names.isEmpty()) { return CompletableFuture.completedFuture(null); }
+            log.info("Moving {} file(s) in {} into the sharded layout", names.size(), directory.getRoot());
+            var moved = new AtomicLong();
+            var failed = new AtomicLong();
+            return CompletableFuture.allOf(names.stream().map(name -> CompletableFuture.runAsync(() -> {
+                try {
+                    if(directory.migrate(name)) { moved.incrementAndGet(); }
+                } catch (IOException exception) {
+                    failed.incrementAndGet();
+                    log.error("Unable to move {} into its shard: {}", name, exception.getMessage());
+                }
+            }, executor)).toArray(CompletableFuture[]::new))
+                    .thenRun(() -> log.info("Moved {} file(s) in {} into the sharded layout, {} failed", moved.get(), directory.getRoot(), failed.get()));
+        } catch (IOException exception) {
+            log.error("Unable to list {} for migration: {}", directory.getRoot(), exception.getMessage());
+            return CompletableFuture.completedFuture(null);
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package project.brianle.securestorage.storage;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import project.brianle.securestorage.domain.StoredObject;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+
+/**
+ * Keeps recently read content on local disk and moves content idle for {@code idleAfter} to a cold tier.
+ */
+@Slf4j
+public class TieredDocumentStorage implements DocumentStorage, Closeable {
+    private final LocalDocumentStorage hot;
+    private final DocumentStorage cold;
+    private final Duration idleAfter;
+    private final Duration touchInterval;
+
+    public TieredDocumentStorage(LocalDocumentStorage hot, DocumentStorage cold, Duration idleAfter, Duration touchInterval) {
+        this.hot = hot;
+        this.cold = cold;
+        this.idleAfter = idleAfter;
+        this.touchInterval = touchInterval;
+    }
+
+    @Override
+    public void put(String key, Path file) throws IOException {
+        hot.put(key, file);
+    }
+
+    @Override
+    public InputStream get(String key) throws IOException {
+        promote(key);
+        return hot.get(key);
+    }
+
+    @Override
+    public InputStream get(String key, long offset, long length) throws IOException {
+        promote(key);
+        return hot.get(key, offset, length);
+    }
+
+    @Override
+    public void delete(String key) throws IOException {
+        hot.delete(key);
+        cold.delete(key);
+    }
+
+    @Override
+    public Optional<StoredObject> stat(String key) throws IOException {
+        var local = hot.stat(key);
+        return local.isPresent() ? local : cold.stat(key);
+    }
+
+    //content in both tiers is listed twice
+    @Override
+    public void forEachKey(Consumer<String> action) throws IOException {
+        hot.forEachKey(action);
+        cold.forEachKey(action);
+    }
+
+    //cold content is not promoted here, callers may answer from headers alone
+    @Override
+    public Optional<Path> localPath(String key) throws IOException {
+        var local = hot.localPath(key);
+        if(local.isPresent()) { hot.touch(key, touchInterval); }
+        return local;
+    }
+
+    private void promote(String key) throws IOException {
+        if(hot.getDirectory().exists(key)) {
+            hot.touch(key, touchInterval);
+            return;
+        }
+        var tempFile = hot.newTempFile();
+        try(var input = cold.get(key)) {
+            Files.copy(input, tempFile, REPLACE_EXISTING);
+            hot.put(key, tempFile);
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${storage.tiering.demote-interval:3600000}", initialDelayString = "${storage.tiering.demote-interval:3600000}")
+    public void demoteIdle() {
+        var cutoff = Instant.now().minus(idleAfter);
+        var demoted = new AtomicLong();
+        try {
+            hot.forEachIdle(cutoff, key -> {
+                try {
+                    if(demote(key, cutoff)) { demoted.incrementAndGet(); }
+                } catch (IOException exception) {
+                    log.error("Unable to demote {}: {}", key, exception.getMessage());
+                }
+            });
+        } catch (IOException exception) {
+            log.error("Unable to scan the hot tier: {}", exception.getMessage());
+        }
+        if(demoted.get() > 0) { log.info("Demoted {} idle blob(s) to the cold tier", demoted.get()); }
+    }
+
+    private boolean demote(String key, Instant cutoff) throws IOException {
+        try {
+            if(cold.stat(key).isEmpty()) {
+                //the cold tier takes ownership of what it is given, so it gets a copy
+                var copy = hot.newTempFile();
+                try {
+                    Files.copy(hot.getDirectory().locate(key), copy);
+                    cold.put(key, copy);
+                } finally {
+                    Files.deleteIfExists(copy);
+                }
+            }
+            //read while it was being copied, so it stays hot
+            if(hot.lastAccess(key).isAfter(cutoff)) { return false; }
+            hot.delete(key);
+            return true;
+        } catch (NoSuchFileException exception) {
+            //deleted while being demoted
+            return false;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if(cold instanceof Closeable closeable) { closeable.close(); }
+    }
+}
@@ -3,10 +3,23 @@ package project.brianle.securestorage.utils;
 import org.springframework.beans.BeanUtils;
 import org.springframework.util.StringUtils;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+import project.brianle.securestorage.domain.StoredContent;
 import project.brianle.securestorage.dto.response.DocumentResponse;
 import project.brianle.securestorage.dto.response.UserResponse;
 import project.brianle.securestorage.entity.DocumentEntity;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+import static java.nio.file.StandardOpenOption.*;
+import static project.brianle.securestorage.constant.Constants.STREAM_BUFFER_SIZE;
+
 public class DocumentUtils {
 
     public static DocumentResponse fromDocumentEntity(DocumentEntity documentEntity, UserResponse createdBy, UserResponse updatedBy) {
@@ -20,8 +33,8 @@ public class DocumentUtils {
         return documentResponse;
     }
 
-    public static String getDocumentUri(String filename) {
-        return ServletUriComponentsBuilder.fromCurrentContextPath().path(String.format("/documents/%s", filename)).toUriString();
+    public static String getDocumentUri(String documentId) {
+        return ServletUriComponentsBuilder.fromCurrentContextPath().path(String.format("/documents/%s", documentId)).toUriString();
     }
 
     public static String setIcon(String fileExtension){
@@ -38,4 +51,47 @@ public class DocumentUtils {
             return "https://htmlstream.com/preview/front-dashboard-v2.1.1/assets/svg/brands/word-icon.svg";
         }
     }
+
+    /**
+     * Copies {@code content} into {@code file} through a single reusable buffer, computing the size and
+     * SHA-256 checksum in the same pass. Memory use stays at one buffer however large the content is.
+     */
+    public static StoredContent writeToFile(InputStream content, Path file) throws IOException {
+        MessageDigest digest = sha256();
+        ByteBuffer buffer = ByteBuffer.allocate(STREAM_BUFFER_SIZE);
+        long size = 0;
+        try(FileChannel channel = FileChannel.open(file, CREATE, TRUNCATE_EXISTING, WRITE)) {
+            int read;
+            while((read = content.read(buffer.array())) != -1) {
+                digest.update(buffer.array(), 0, read);
+                buffer.limit(read).position(0);
+                while(buffer.hasRemaining()) { size += channel.write(buffer); }
+                buffer.clear();
+            }
+        }
+        return new StoredContent(size, HexFormat.of().formatHex(digest.digest()));
+    }
+
+    /**
+     * Computes the size and SHA-256 checksum of {@code content} without writing it anywhere.
+     */
+    public static StoredContent digest(InputStream content) throws IOException {
+        MessageDigest digest = sha256();
+        byte[] buffer = new byte[STREAM_BUFFER_SIZE];
+        long size = 0;
+        int read;
+        while((read = content.read(buffer)) != -1) {
+            digest.update(buffer, 0, read);
+            size += read;
+        }
+        return new StoredContent(size, HexFormat.of().formatHex(digest.digest()));
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException exception) {
+            throw new IllegalStateException(exception);
+        }
+    }
 }
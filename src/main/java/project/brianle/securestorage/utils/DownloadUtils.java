@@ -0,0 +1,197 @@
+package project.brianle.securestorage.utils;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpRange;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.util.MimeTypeUtils;
+import org.springframework.web.context.request.ServletWebRequest;
+import project.brianle.securestorage.domain.DocumentFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.nio.file.StandardOpenOption.READ;
+import static org.springframework.http.HttpHeaders.*;
+import static org.springframework.http.HttpStatus.PARTIAL_CONTENT;
+import static org.springframework.http.HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE;
+import static project.brianle.securestorage.constant.Constants.FILE_NAME;
+
+public class DownloadUtils {
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    //the ETag is the content hash, so a renamed document keeps validating
+    public static void writeDocument(DocumentFile document, HttpServletRequest request, HttpServletResponse response) throws IOException {
+        long lastModified = document.lastModified().toEpochMilli();
+        var contentType = MediaTypeFactory.getMediaType(document.name()).orElse(MediaType.APPLICATION_OCTET_STREAM);
+        if(document.gzip() != null) {
+            response.setHeader(VARY, ACCEPT_ENCODING);
+            //ranges always select from the identity representation, so only whole-content requests can get gzip
+            if(request.getHeader(RANGE) == null && acceptsGzip(request)) {
+                //a different representation needs a different entity tag
+                var etag = document.checksum() == null ? null : "\"" + document.checksum() + "-gzip\"";
+                if(notModifiedGzip(request, response, etag, lastModified)) { return; }
+                var gzip = document.gzip().open();
+                if(gzip.isPresent()) {
+                    try(var content = gzip.get().content()) {
+                        if(new ServletWebRequest(request, response).checkNotModified(etag, lastModified)) { return; }
+                        writeHeaders(document, response);
+                        response.setContentType(contentType.toString());
+                        response.setHeader(CONTENT_ENCODING, "gzip");
+                        response.setContentLengthLong(gzip.get().size());
+                        if(!"HEAD".equalsIgnoreCase(request.getMethod())) { content.transferTo(response.getOutputStream()); }
+                    }
+                    return;
+                }
+            }
+        }
+        var etag = document.checksum() == null ? null : "\"" + document.checksum() + "\"";
+        if(new ServletWebRequest(request, response).checkNotModified(etag, lastModified)) { return; }
+        writeHeaders(document, response);
+        List<Region> regions;
+        try {
+            regions = regions(requestedRanges(request, etag, lastModified), document.size());
+        } catch (IllegalArgumentException exception) {
+            response.setHeader(CONTENT_RANGE, "bytes */" + document.size());
+            response.setStatus(REQUESTED_RANGE_NOT_SATISFIABLE.value());
+            return;
+        }
+        boolean head = "HEAD".equalsIgnoreCase(request.getMethod());
+        if(regions.isEmpty()) {
+            response.setContentType(contentType.toString());
+            response.setContentLengthLong(document.size());
+            if(!head) { transfer(document, 0, document.size(), request, response); }
+        } else if(regions.size() == 1) {
+            var region = regions.get(0);
+            response.setStatus(PARTIAL_CONTENT.value());
+            response.setContentType(contentType.toString());
+            response.setContentLengthLong(region.count());
+            response.setHeader(CONTENT_RANGE, contentRange(region, document.size()));
+            if(!head) { transfer(document, region.position(), region.count(), request, response); }
+        } else {
+            var boundary = MimeTypeUtils.generateMultipartBoundaryString();
+            response.setStatus(PARTIAL_CONTENT.value());
+            response.setContentType("multipart/byteranges; boundary=" + boundary);
+            if(head) { return; }
+            OutputStream output = response.getOutputStream();
+            try(FileChannel channel = document.path() == null ? null : FileChannel.open(document.path(), READ)) {
+                WritableByteChannel target = Channels.newChannel(output);
+                for(Region region : regions) {
+                    output.write(("\r\n--" + boundary + "\r\n" + CONTENT_TYPE + ": " + contentType + "\r\n" + CONTENT_RANGE + ": " + contentRange(region, document.size()) + "\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+                    if(channel != null) {
+                        transferTo(channel, region.position(), region.count(), target);
+                    } else {
+                        try(InputStream input = document.reader().open(region.position(), region.count())) { input.transferTo(output); }
+                    }
+                }
+                output.write(("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.US_ASCII));
+            }
+        }
+    }
+
+    private static void writeHeaders(DocumentFile document, HttpServletResponse response) {
+        response.setHeader(ACCEPT_RANGES, "bytes");
+        response.setHeader(FILE_NAME, document.name());
+        response.setHeader(CONTENT_DISPOSITION, "attachment;File-Name=" + document.name());
+    }
+
+    //answers 304 without opening, and so decrypting, the stored gzip stream; only compressed content has a gzip tag
+    private static boolean notModifiedGzip(HttpServletRequest request, HttpServletResponse response, String etag, long lastModified) {
+        var ifNoneMatch = request.getHeader(IF_NONE_MATCH);
+        if(ifNoneMatch != null) {
+            return etag != null && ifNoneMatch.contains(etag) && new ServletWebRequest(request, response).checkNotModified(etag, lastModified);
+        }
+        try {
+            long ifModifiedSince = request.getDateHeader(IF_MODIFIED_SINCE);
+            return ifModifiedSince != -1 && lastModified / 1000 <= ifModifiedSince / 1000 && new ServletWebRequest(request, response).checkNotModified(lastModified);
+        } catch (IllegalArgumentException exception) {
+            return false;
+        }
+    }
+
+    private static boolean acceptsGzip(HttpServletRequest request) {
+        var acceptEncoding = request.getHeader(ACCEPT_ENCODING);
+        if(acceptEncoding == null) { return false; }
+        for(String coding : acceptEncoding.split(",")) {
+            var parts = coding.split(";");
+            var name = parts[0].trim();
+            if(!name.equalsIgnoreCase("gzip") && !name.equals("*")) { continue; }
+            var quality = parts.length > 1 ? parts[1].trim() : "";
+            return !quality.matches("(?i)q\\s*=\\s*0(\\.0*)?");
+        }
+        return false;
+    }
+
+    //a stale If-Range means the client's partial copy is of other content, so it gets the whole file instead
+    private static List<HttpRange> requestedRanges(HttpServletRequest request, String etag, long lastModified) {
+        var ifRange = request.getHeader(IF_RANGE);
+        if(ifRange != null && !ifRange.equals(etag)) {
+            long ifRangeDate = request.getDateHeader(IF_RANGE);
+            if(ifRangeDate == -1 || lastModified / 1000 > ifRangeDate / 1000) { return List.of(); }
+        }
+        try {
+            return HttpRange.parseRanges(request.getHeader(RANGE));
+        } catch (IllegalArgumentException exception) {
+            //a Range header that does not parse is ignored and the whole file sent (RFC 9110, section 14.2)
+            return List.of();
+        }
+    }
+
+    //throws IllegalArgumentException for unsatisfiable ranges, including overlapping ones that exceed the content
+    private static List<Region> regions(List<HttpRange> ranges, long size) {
+        var regions = new ArrayList<Region>(ranges.size());
+        long total = 0;
+        for(HttpRange range : ranges) {
+            long start = range.getRangeStart(size);
+            if(start >= size) { throw new IllegalArgumentException("Range starts past the end of the content"); }
+            long count = range.getRangeEnd(size) - start + 1;
+            regions.add(new Region(start, count));
+            total += count;
+        }
+        if(regions.size() > 1 && total > size) { throw new IllegalArgumentException("Ranges exceed the content length"); }
+        return regions;
+    }
+
+    private static String contentRange(Region region, long size) {
+        return "bytes " + region.position() + "-" + (region.position() + region.count() - 1) + "/" + size;
+    }
+
+    private static void transfer(DocumentFile document, long position, long count, HttpServletRequest request, HttpServletResponse response) throws IOException {
+        if(document.path() == null) {
+            try(InputStream input = document.reader().open(position, count)) { input.transferTo(response.getOutputStream()); }
+            return;
+        }
+        Path file = document.path();
+        if(Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            request.setAttribute(SENDFILE_FILENAME, file.toAbsolutePath().toString());
+            request.setAttribute(SENDFILE_START, position);
+            request.setAttribute(SENDFILE_END, position + count);
+            return;
+        }
+        try(FileChannel channel = FileChannel.open(file, READ)) {
+            transferTo(channel, position, count, Channels.newChannel(response.getOutputStream()));
+        }
+    }
+
+    private record Region(long position, long count) {}
+
+    private static void transferTo(FileChannel channel, long position, long count, WritableByteChannel target) throws IOException {
+        while(count > 0) {
+            long transferred = channel.transferTo(position, count, target);
+            position += transferred;
+            count -= transferred;
+        }
+    }
+}
@@ -12,6 +12,8 @@ import org.springframework.security.access.AccessDeniedException;
 import org.springframework.security.authentication.*;
 import project.brianle.securestorage.domain.Response;
 import project.brianle.securestorage.exceptions.CustomException;
+import project.brianle.securestorage.exceptions.ServiceUnavailableException;
+import project.brianle.securestorage.exceptions.TooManyRequestsException;
 
 import java.util.Map;
 import java.util.function.BiConsumer;
@@ -19,8 +21,10 @@ import java.util.function.BiFunction;
 
 import static java.time.LocalDateTime.now;
 import static java.util.Collections.emptyMap;
+import static org.springframework.http.HttpHeaders.RETRY_AFTER;
 import static org.springframework.http.HttpStatus.*;
 import static org.springframework.http.MediaType.APPLICATION_JSON_VALUE;
+import static project.brianle.securestorage.constant.Constants.RETRY_AFTER_SECONDS;
 
 public class RequestUtils {
 
@@ -62,6 +66,14 @@ public class RequestUtils {
         } else if (exception instanceof InsufficientAuthenticationException) {
             Response apiResponse = getErrorResponse(request, response, exception, UNAUTHORIZED);
             writeResponse.accept(response, apiResponse);
+        } else if (exception instanceof ServiceUnavailableException) {
+            Response apiResponse = getErrorResponse(request, response, exception, SERVICE_UNAVAILABLE);
+            response.setHeader(RETRY_AFTER, String.valueOf(RETRY_AFTER_SECONDS));
+            writeResponse.accept(response, apiResponse);
+        } else if (exception instanceof TooManyRequestsException tooManyRequestsException) {
+            Response apiResponse = getErrorResponse(request, response, exception, TOO_MANY_REQUESTS);
+            response.setHeader(RETRY_AFTER, String.valueOf(tooManyRequestsException.getRetryAfterSeconds()));
+            writeResponse.accept(response, apiResponse);
         } else if (exception instanceof MismatchedInputException) {
             Response apiResponse = getErrorResponse(request, response, exception, BAD_REQUEST);
             writeResponse.accept(response, apiResponse);
@@ -0,0 +1,23 @@
+package project.brianle.securestorage.utils;
+
+import org.springframework.util.IdGenerator;
+
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Generates UUIDv7-style ids: a 48-bit Unix millisecond timestamp followed by random bits, so ids sort by
+ * creation time and index well. Randomness comes from {@link ThreadLocalRandom}, so generation is lock-free
+ * and needs no per-instance seeding; the ids are unique, not secret.
+ */
+public class TimeOrderedIdGenerator implements IdGenerator {
+    public static final TimeOrderedIdGenerator INSTANCE = new TimeOrderedIdGenerator();
+
+    @Override
+    public UUID generateId() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long mostSignificantBits = (System.currentTimeMillis() << 16) | 0x7000L | (random.nextLong() & 0x0FFFL);
+        long leastSignificantBits = (random.nextLong() & 0x3FFFFFFFFFFFFFFFL) | 0x8000000000000000L;
+        return new UUID(mostSignificantBits, leastSignificantBits);
+    }
+}
@@ -32,6 +32,7 @@ public class UserUtils {
                 .accountNonLocked(true)
                 .enabled(false)
                 .mfa(false)
+                .securityVersion(0)
                 .loginAttempts(0)
                 .qrCodeSecret("")
                 .phone("")
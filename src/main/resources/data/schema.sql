@@ -1,5 +1,13 @@
 BEGIN;
 
+-- trigram matching for document name search
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+
+-- Hibernate hands out ids from this sequence in blocks of INCREMENT BY (pooled-lo); change the increment to change the block size
+CREATE SEQUENCE IF NOT EXISTS primary_key_seq INCREMENT BY 50;
+
+ALTER SEQUENCE primary_key_seq INCREMENT BY 50;
+
 CREATE TABLE IF NOT EXISTS users (
     id SERIAL PRIMARY KEY,
     user_id CHARACTER VARYING(255) NOT NULL,
@@ -18,6 +26,7 @@ CREATE TABLE IF NOT EXISTS users (
     enabled BOOLEAN NOT NULL DEFAULT FALSE,
     account_non_expired BOOLEAN NOT NULL DEFAULT FALSE,
     account_non_locked BOOLEAN NOT NULL DEFAULT FALSE,
+    security_version BIGINT NOT NULL DEFAULT 0,
     created_by BIGINT NOT NULL,
     updated_by BIGINT NOT NULL,
     created_at TIMESTAMP(6) WITH TIME ZONE DEFAULT CURRENT_TIMESTAMP,
@@ -70,6 +79,7 @@ CREATE TABLE IF NOT EXISTS documents (
     uri CHARACTER VARYING(255),
     description CHARACTER VARYING(255),
     reference_id CHARACTER VARYING(255),
+    checksum CHARACTER VARYING(64),
     created_by BIGINT NOT NULL,
     updated_by BIGINT NOT NULL,
     created_at TIMESTAMP(6) WITH TIME ZONE DEFAULT CURRENT_TIMESTAMP,
@@ -79,6 +89,14 @@ CREATE TABLE IF NOT EXISTS documents (
     CONSTRAINT fk_documents_updated_by FOREIGN KEY (updated_by) REFERENCES users (id) MATCH SIMPLE ON UPDATE CASCADE ON DELETE RESTRICT
 );
 
+CREATE TABLE IF NOT EXISTS blobs (
+    hash CHARACTER VARYING(64) PRIMARY KEY,
+    size BIGINT NOT NULL,
+    ref_count INTEGER NOT NULL,
+    stored_size BIGINT,
+    created_at TIMESTAMP(6) NOT NULL
+);
+
 CREATE TABLE IF NOT EXISTS roles (
     id SERIAL PRIMARY KEY,
     authorities CHARACTER VARYING(255),
@@ -100,6 +118,12 @@ CREATE TABLE IF NOT EXISTS user_roles (
     CONSTRAINT fk_user_roles_role_id FOREIGN KEY (role_id) REFERENCES roles (id) MATCH SIMPLE ON UPDATE CASCADE ON DELETE RESTRICT
 );
 
+CREATE UNLOGGED TABLE IF NOT EXISTS counters (
+    counter_key CHARACTER VARYING(255) PRIMARY KEY,
+    count INTEGER NOT NULL,
+    expires_at TIMESTAMP(6) WITH TIME ZONE NOT NULL
+);
+
 CREATE INDEX IF NOT EXISTS index_users_email ON users (email);
 
 CREATE INDEX IF NOT EXISTS index_users_user_id ON users (user_id);
@@ -110,4 +134,8 @@ CREATE INDEX IF NOT EXISTS index_credentials_user_id ON credentials (user_id);
 
 CREATE INDEX IF NOT EXISTS index_user_roles_user_id ON user_roles (user_id);
 
+CREATE INDEX IF NOT EXISTS index_documents_name ON documents (name);
+
+CREATE INDEX IF NOT EXISTS index_documents_name_trgm ON documents USING gin (name gin_trgm_ops);
+
 END;
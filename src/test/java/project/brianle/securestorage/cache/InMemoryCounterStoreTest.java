@@ -0,0 +1,38 @@
+package project.brianle.securestorage.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class InMemoryCounterStoreTest {
+    private static final int THREADS = 32;
+    private static final int INCREMENTS = 5_000;
+
+    @Test
+    void concurrentIncrementsOfOneKeyAreNeverLost() throws Exception {
+        InMemoryCounterStore<String> counters = new InMemoryCounterStore<>(CacheRegion.LOGIN_ATTEMPTS);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        for(int thread = 0; thread < THREADS; thread++) {
+            executor.submit(() -> {
+                start.await();
+                for(int i = 0; i < INCREMENTS; i++) { counters.increment("user@example.com"); }
+                return null;
+            });
+        }
+        start.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(1, TimeUnit.MINUTES));
+
+        assertEquals(THREADS * INCREMENTS, counters.get("user@example.com"));
+        assertEquals(THREADS * INCREMENTS, counters.getAndEvict("user@example.com"));
+        assertNull(counters.get("user@example.com"));
+    }
+}
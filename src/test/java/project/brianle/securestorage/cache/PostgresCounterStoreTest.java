@@ -0,0 +1,66 @@
+package project.brianle.securestorage.cache;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs against a local Postgres, e.g. {@code COUNTER_STORE_DATABASE_URL=jdbc:postgresql://localhost:5432/test?user=postgres&password=postgres}.
+ */
+@EnabledIfEnvironmentVariable(named = "COUNTER_STORE_DATABASE_URL", matches = ".+")
+class PostgresCounterStoreTest {
+    private static final int THREADS = 16;
+    private static final int INCREMENTS = 200;
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = new JdbcTemplate(new DriverManagerDataSource(System.getenv("COUNTER_STORE_DATABASE_URL")));
+        new PostgresCounterStore(jdbcTemplate, Duration.ofMinutes(15)).init();
+        jdbcTemplate.update("DELETE FROM counters WHERE counter_key LIKE 'test:%'");
+    }
+
+    @Test
+    void incrementsFromTwoInstancesShareOneCount() throws Exception {
+        //two stores on the same table stand in for two application nodes
+        var nodes = new PostgresCounterStore[] { new PostgresCounterStore(jdbcTemplate, Duration.ofMinutes(15)), new PostgresCounterStore(jdbcTemplate, Duration.ofMinutes(15)) };
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        for(int thread = 0; thread < THREADS; thread++) {
+            var node = nodes[thread % nodes.length];
+            executor.submit(() -> {
+                start.await();
+                for(int i = 0; i < INCREMENTS; i++) { node.increment("test:user@example.com"); }
+                return null;
+            });
+        }
+        start.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(1, TimeUnit.MINUTES));
+
+        assertEquals(THREADS * INCREMENTS, nodes[0].get("test:user@example.com"));
+        nodes[1].evict("test:user@example.com");
+        assertNull(nodes[0].get("test:user@example.com"));
+    }
+
+    @Test
+    void expiredCounterRestartsFromOne() {
+        var counters = new PostgresCounterStore(jdbcTemplate, Duration.ofMinutes(15));
+        counters.increment("test:expired");
+        counters.increment("test:expired");
+        jdbcTemplate.update("UPDATE counters SET expires_at = now() - INTERVAL '1 second' WHERE counter_key = 'test:expired'");
+
+        assertNull(counters.get("test:expired"));
+        assertEquals(1, counters.increment("test:expired"));
+    }
+}
@@ -0,0 +1,82 @@
+package project.brianle.securestorage.repository;
+
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.util.AlternativeJdkIdGenerator;
+import project.brianle.securestorage.entity.DocumentEntity;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase.Replace.NONE;
+
+/**
+ * Loads 10k documents back from the database several times and reports how many entities Hibernate hydrates per
+ * second, next to what seeding one {@link AlternativeJdkIdGenerator} per entity, as {@code Auditable} used to,
+ * would add. Runs against a local Postgres, e.g.
+ * {@code BENCHMARK_DATABASE_URL=jdbc:postgresql://localhost:5432/test BENCHMARK_DATABASE_USERNAME=postgres}.
+ */
+@DataJpaTest(properties = { "spring.jpa.show-sql=false" })
+@AutoConfigureTestDatabase(replace = NONE)
+@EnabledIfEnvironmentVariable(named = "BENCHMARK_DATABASE_URL", matches = ".+")
+class DocumentHydrationBenchmarkTest {
+    private static final int DOCUMENTS = 10_000;
+    private static final int FLUSH_SIZE = 500;
+    private static final int ROUNDS = 5;
+
+    @Autowired
+    private DocumentRepository documentRepository;
+    @Autowired
+    private EntityManager entityManager;
+
+    @DynamicPropertySource
+    static void datasource(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", () -> System.getenv("BENCHMARK_DATABASE_URL"));
+        registry.add("spring.datasource.username", () -> System.getenv().getOrDefault("BENCHMARK_DATABASE_USERNAME", "postgres"));
+        registry.add("spring.datasource.password", () -> System.getenv().getOrDefault("BENCHMARK_DATABASE_PASSWORD", "postgres"));
+    }
+
+    @Test
+    void hydrateTenThousandDocuments() {
+        var prefix = "hydration-" + UUID.randomUUID() + "-";
+        for(int offset = 0; offset < DOCUMENTS; offset += FLUSH_SIZE) {
+            List<DocumentEntity> documents = new ArrayList<>(FLUSH_SIZE);
+            for(int i = offset; i < offset + FLUSH_SIZE; i++) {
+                documents.add(DocumentEntity.builder().documentId(UUID.randomUUID().toString()).name(prefix + i + ".pdf").extension("pdf").size(i).build());
+            }
+            documentRepository.saveAll(documents);
+            entityManager.flush();
+            entityManager.clear();
+        }
+
+        long hydrationNanos = Long.MAX_VALUE;
+        for(int round = 0; round < ROUNDS; round++) {
+            long start = System.nanoTime();
+            var documents = entityManager.createQuery("SELECT d FROM DocumentEntity d WHERE d.name LIKE :prefix", DocumentEntity.class)
+                    .setParameter("prefix", prefix + "%")
+                    .getResultList();
+            hydrationNanos = Math.min(hydrationNanos, System.nanoTime() - start);
+            assertEquals(DOCUMENTS, documents.size());
+            entityManager.clear();
+        }
+
+        long seedingNanos = Long.MAX_VALUE;
+        for(int round = 0; round < ROUNDS; round++) {
+            long start = System.nanoTime();
+            for(int i = 0; i < DOCUMENTS; i++) { new AlternativeJdkIdGenerator().generateId(); }
+            seedingNanos = Math.min(seedingNanos, System.nanoTime() - start);
+        }
+
+        System.out.printf("Hydrated %d documents in %d ms (%.0f entities/s); a generator per entity would add %d ms (%.0f entities/s)%n",
+                DOCUMENTS, hydrationNanos / 1_000_000, DOCUMENTS * 1e9 / hydrationNanos,
+                seedingNanos / 1_000_000, DOCUMENTS * 1e9 / (hydrationNanos + seedingNanos));
+    }
+}
@@ -0,0 +1,68 @@
+package project.brianle.securestorage.repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import project.brianle.securestorage.entity.DocumentEntity;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase.Replace.NONE;
+
+/**
+ * Inserts 10k documents and reports the JDBC statements Hibernate prepared and the wall time. Runs against a local
+ * Postgres, e.g. {@code BENCHMARK_DATABASE_URL=jdbc:postgresql://localhost:5432/test BENCHMARK_DATABASE_USERNAME=postgres}.
+ * Compare against {@code allocationSize = 1} and {@code batch_size: 0} to see the difference pooled ids and batching make.
+ */
+@DataJpaTest(properties = { "spring.jpa.properties.hibernate.generate_statistics=true", "spring.jpa.show-sql=false" })
+@AutoConfigureTestDatabase(replace = NONE)
+@EnabledIfEnvironmentVariable(named = "BENCHMARK_DATABASE_URL", matches = ".+")
+class DocumentInsertBenchmarkTest {
+    private static final int DOCUMENTS = 10_000;
+    private static final int FLUSH_SIZE = 500;
+
+    @Autowired
+    private DocumentRepository documentRepository;
+    @Autowired
+    private EntityManager entityManager;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @DynamicPropertySource
+    static void datasource(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", () -> System.getenv("BENCHMARK_DATABASE_URL"));
+        registry.add("spring.datasource.username", () -> System.getenv().getOrDefault("BENCHMARK_DATABASE_USERNAME", "postgres"));
+        registry.add("spring.datasource.password", () -> System.getenv().getOrDefault("BENCHMARK_DATABASE_PASSWORD", "postgres"));
+    }
+
+    @Test
+    void insertTenThousandDocuments() {
+        var statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        long start = System.nanoTime();
+        for(int offset = 0; offset < DOCUMENTS; offset += FLUSH_SIZE) {
+            List<DocumentEntity> documents = new ArrayList<>(FLUSH_SIZE);
+            for(int i = offset; i < offset + FLUSH_SIZE; i++) {
+                documents.add(DocumentEntity.builder().documentId(UUID.randomUUID().toString()).name("benchmark-" + i + ".pdf").extension("pdf").size(i).build());
+            }
+            documentRepository.saveAll(documents);
+            entityManager.flush();
+            entityManager.clear();
+        }
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+        System.out.printf("Inserted %d documents in %d ms: %d statements prepared, %d entity inserts%n",
+                DOCUMENTS, elapsedMillis, statistics.getPrepareStatementCount(), statistics.getEntityInsertCount());
+        assertEquals(DOCUMENTS, statistics.getEntityInsertCount());
+    }
+}
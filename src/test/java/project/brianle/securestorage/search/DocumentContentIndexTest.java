@@ -0,0 +1,117 @@
+package project.brianle.securestorage.search;
+
+import org.apache.lucene.document.*;
+import org.apache.lucene.index.IndexOptions;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.store.FSDirectory;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.data.domain.PageRequest;
+import project.brianle.securestorage.domain.IndexedDocument;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DocumentContentIndexTest {
+    @TempDir
+    Path directory;
+    private ContentSearchProperties properties;
+    private DocumentContentIndex index;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        properties = new ContentSearchProperties();
+        properties.setDirectory(directory.toString());
+        index = new DocumentContentIndex(properties);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        index.close();
+    }
+
+    @Test
+    void extractedTextIsSearchable() throws Exception {
+        var text = new TextExtractor(properties).extract(new ByteArrayInputStream(pdf("Quarterly revenue grew in the northern region")), "report.pdf");
+        index.put(new IndexedDocument("doc-1", "hash-1", "report.pdf", null, "pdf", 100, text));
+        index.put(new IndexedDocument("doc-2", "hash-2", "notes.txt", "revenue notes", "txt", 10, "Nothing <script> here"));
+        index.refresh();
+
+        var page = index.search("northern revenue", PageRequest.of(0, 5));
+        assertEquals(1, page.getTotalElements());
+        assertEquals("doc-1", page.getContent().get(0).getDocumentId());
+        assertEquals(2, index.search("revenue", PageRequest.of(0, 5)).getTotalElements());
+        assertEquals(1, index.search("revenue", PageRequest.of(1, 1)).getContent().size());
+        assertThrows(IllegalArgumentException.class, () -> index.search("revenue", PageRequest.of(10_000, 1)));
+    }
+
+    @Test
+    void matchesAreHighlightedAndEscaped() throws Exception {
+        assertTrue(index.highlight("northern revenue", "Quarterly revenue grew in the northern region").contains("<mark>northern</mark>"));
+        assertTrue(index.highlight("script", "Nothing <script> here").contains("&lt;<mark>script</mark>&gt;"));
+        assertNull(index.highlight("figures", ""));
+    }
+
+    @Test
+    void entriesAreUpdatedAndRemoved() throws Exception {
+        index.put(new IndexedDocument("doc-1", "hash-1", "draft.txt", null, "txt", 5, "budget figures"));
+        index.put(new IndexedDocument("doc-2", "hash-2", "other.txt", null, "txt", 5, "other text"));
+        index.refresh();
+        assertEquals(List.of("doc-3"), index.missing(List.of("doc-1", "doc-3")));
+
+        index.put(new IndexedDocument("doc-1", "hash-1", "final.txt", null, "txt", 5, "budget figures"));
+        index.delete("doc-2");
+        index.refresh();
+
+        assertEquals("final.txt", index.search("budget", PageRequest.of(0, 5)).getContent().get(0).getName());
+        assertEquals(0, index.search("draft", PageRequest.of(0, 5)).getTotalElements());
+        var ids = new ArrayList<String>();
+        index.forEachId(ids::add);
+        assertEquals(List.of("doc-1"), ids);
+    }
+
+    @Test
+    void indexThatStoredTextIsRebuilt() throws Exception {
+        index.close();
+        var storedContent = new FieldType(TextField.TYPE_STORED);
+        storedContent.setIndexOptions(IndexOptions.DOCS_AND_FREQS_AND_POSITIONS_AND_OFFSETS);
+        try(var writer = new IndexWriter(FSDirectory.open(directory), new IndexWriterConfig())) {
+            var entry = new Document();
+            entry.add(new StringField("id", "doc-1", Field.Store.YES));
+            entry.add(new Field("content", "plaintext copy", storedContent));
+            writer.addDocument(entry);
+        }
+
+        index = new DocumentContentIndex(properties);
+
+        assertEquals(List.of("doc-1"), index.missing(List.of("doc-1")));
+    }
+
+    private static byte[] pdf(String line) throws Exception {
+        try(var document = new PDDocument(); var output = new ByteArrayOutputStream()) {
+            var page = new PDPage();
+            document.addPage(page);
+            try(var stream = new PDPageContentStream(document, page)) {
+                stream.beginText();
+                stream.setFont(PDType1Font.HELVETICA, 12);
+                stream.newLineAtOffset(72, 700);
+                stream.showText(line);
+                stream.endText();
+            }
+            document.save(output);
+            return output.toByteArray();
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package project.brianle.securestorage.search;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import project.brianle.securestorage.enumeration.SearchMode;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static project.brianle.securestorage.constant.Constants.*;
+
+/**
+ * Runs the document name search queries against a growing table in a scratch schema and reports the latency of
+ * every mode at each size, e.g.
+ * {@code SEARCH_BENCHMARK_URL=jdbc:postgresql://localhost:5432/securestorage SEARCH_BENCHMARK_USERNAME=... SEARCH_BENCHMARK_PASSWORD=... mvn test -Dtest=DocumentNameSearchBenchmarkTest}.
+ * The table grows 100-fold, to one million documents unless {@code SEARCH_BENCHMARK_DOCUMENTS} says otherwise,
+ * and at full size no plan may fall back to scanning it.
+ */
+@EnabledIfEnvironmentVariable(named = "SEARCH_BENCHMARK_URL", matches = ".+")
+class DocumentNameSearchBenchmarkTest {
+    private static final String SCHEMA = "search_benchmark";
+    private static final int ROUNDS = 20;
+    private static final List<String> SETUP = List.of(
+            "CREATE EXTENSION IF NOT EXISTS pg_trgm",
+            "DROP SCHEMA IF EXISTS " + SCHEMA + " CASCADE",
+            "CREATE SCHEMA " + SCHEMA,
+            "SET search_path TO " + SCHEMA + ", public",
+            "CREATE TABLE users (id BIGINT PRIMARY KEY, first_name VARCHAR(50), last_name VARCHAR(50), email VARCHAR(100), phone VARCHAR(30), last_login TIMESTAMP(6) WITH TIME ZONE)",
+            "CREATE TABLE blobs (hash VARCHAR(64) PRIMARY KEY, stored_size BIGINT)",
+            "CREATE TABLE documents (id BIGINT PRIMARY KEY, document_id VARCHAR(255), name VARCHAR(255), description VARCHAR(255), uri VARCHAR(255), icon VARCHAR(255), size BIGINT, formatted_size VARCHAR(255), extension VARCHAR(10), reference_id VARCHAR(255), checksum VARCHAR(64), created_by BIGINT, updated_by BIGINT, created_at TIMESTAMP(6) WITH TIME ZONE, updated_at TIMESTAMP(6) WITH TIME ZONE)",
+            "INSERT INTO users VALUES (1, 'Bench', 'Mark', 'bench@example.com', '0', now())",
+            "CREATE INDEX index_documents_name ON documents (name)",
+            "CREATE INDEX index_documents_name_trgm ON documents USING gin (name gin_trgm_ops)");
+    private static final String INSERT = """
+            INSERT INTO documents (id, document_id, name, description, uri, icon, size, formatted_size, extension, reference_id, checksum, created_by, updated_by, created_at, updated_at)
+            SELECT i, md5(i::text), 'report-' || i || '-' || substr(md5(i::text), 1, 12) || '.pdf', 'benchmark', 'uri', 'icon', i, i || ' B', 'pdf', 'ref', NULL, 1, 1, now(), now()
+            FROM generate_series(?, ?) AS i""";
+    private Connection connection;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        connection = DriverManager.getConnection(System.getenv("SEARCH_BENCHMARK_URL"), System.getenv("SEARCH_BENCHMARK_USERNAME"), System.getenv("SEARCH_BENCHMARK_PASSWORD"));
+        try(var statement = connection.createStatement()) {
+            for(String sql : SETUP) { statement.execute(sql); }
+        }
+    }
+
+    @AfterEach
+    void tearDown() throws SQLException {
+        try(var statement = connection.createStatement()) {
+            statement.execute("DROP SCHEMA IF EXISTS " + SCHEMA + " CASCADE");
+        } finally {
+            connection.close();
+        }
+    }
+
+    @Test
+    void searchLatencyDoesNotGrowWithTheTable() throws SQLException {
+        long documents = Long.parseLong(System.getenv().getOrDefault("SEARCH_BENCHMARK_DOCUMENTS", "1000000"));
+        long inserted = 0;
+        var latencies = new ArrayList<Double>();
+        for(long size = documents / 100; size <= documents; size *= 10) {
+            try(var statement = connection.prepareStatement(INSERT)) {
+                statement.setLong(1, inserted + 1);
+                statement.setLong(2, size);
+                statement.executeUpdate();
+            }
+            inserted = size;
+            try(var statement = connection.createStatement()) { statement.execute("ANALYZE documents"); }
+            //a name from the first batch, so every size has the same matches
+            var term = "5-" + md5("5").substring(0, 8);
+            double slowest = 0;
+            for(var mode : SearchMode.values()) {
+                double millis = measure(mode, size == documents, mode == SearchMode.LITERAL ? "REPORT-5-" + md5("5").substring(0, 12) + ".PDF" : mode == SearchMode.PREFIX ? "report-5-" : term);
+                slowest = Math.max(slowest, millis);
+                System.out.printf("%,d documents, %s: %.2f ms (page and count)%n", size, mode, millis);
+            }
+            latencies.add(slowest);
+        }
+        //an index lookup stays within a small factor while the table grows 100-fold; a scan would grow with it
+        assertTrue(latencies.get(latencies.size() - 1) < latencies.get(0) * 10 + 5, "Search latency grew with the table: " + latencies);
+    }
+
+    //small tables may rightly be scanned, so plans are only checked at full size
+    private double measure(SearchMode mode, boolean checkPlan, String term) throws SQLException {
+        var fuzzy = mode == SearchMode.FUZZY;
+        var select = (fuzzy ? SELECT_DOCUMENTS_BY_SIMILAR_NAME_QUERY : SELECT_DOCUMENTS_BY_NAME_QUERY + " ORDER BY doc.name") + " LIMIT 5";
+        var count = fuzzy ? COUNT_DOCUMENTS_BY_SIMILAR_NAME_QUERY : COUNT_DOCUMENTS_BY_NAME_QUERY;
+        var value = fuzzy ? term : mode.pattern(term);
+        for(String sql : checkPlan ? List.of(select, count) : List.<String>of()) {
+            var plan = plan(sql, value);
+            assertFalse(plan.contains("Seq Scan on documents"), mode + " scans the table:\n" + plan);
+        }
+        long total = 0;
+        for(int round = 0; round < ROUNDS; round++) {
+            long start = System.nanoTime();
+            run(select, value, true);
+            run(count, value, false);
+            total += System.nanoTime() - start;
+        }
+        return total / (ROUNDS * 1_000_000.0);
+    }
+
+    private void run(String sql, String value, boolean expectRows) throws SQLException {
+        try(var statement = connection.prepareStatement(bind(sql))) {
+            for(int index = 1; index <= statement.getParameterMetaData().getParameterCount(); index++) { statement.setString(index, value); }
+            try(var result = statement.executeQuery()) {
+                assertTrue(result.next() || !expectRows, "No match for " + value);
+            }
+        }
+    }
+
+    private String plan(String sql, String value) throws SQLException {
+        var plan = new StringBuilder();
+        try(var statement = connection.prepareStatement("EXPLAIN " + bind(sql))) {
+            for(int index = 1; index <= statement.getParameterMetaData().getParameterCount(); index++) { statement.setString(index, value); }
+            try(var result = statement.executeQuery()) {
+                while(result.next()) { plan.append(result.getString(1)).append('\n'); }
+            }
+        }
+        return plan.toString();
+    }
+
+    private static String bind(String sql) {
+        return sql.replace(":pattern", "?").replace(":name", "?");
+    }
+
+    private String md5(String value) throws SQLException {
+        try(var statement = connection.prepareStatement("SELECT md5(?)")) {
+            statement.setString(1, value);
+            try(var result = statement.executeQuery()) {
+                result.next();
+                return result.getString(1);
+            }
+        }
+    }
+}
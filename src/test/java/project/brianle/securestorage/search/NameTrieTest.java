@@ -0,0 +1,77 @@
+package project.brianle.securestorage.search;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class NameTrieTest {
+
+    @Test
+    void suggestionsAreRankedByCountThenName() {
+        var trie = new NameTrie();
+        List.of("report.pdf", "Report-2024.pdf", "report.pdf", "readme.txt", "REPORT.PDF", "rent.xlsx", "invoice.pdf").forEach(trie::add);
+
+        assertEquals(List.of(new NameTrie.Suggestion("report.pdf", 2), new NameTrie.Suggestion("readme.txt", 1), new NameTrie.Suggestion("rent.xlsx", 1)),
+                trie.suggest("RE", 3));
+        assertEquals(List.of("report.pdf", "Report-2024.pdf", "REPORT.PDF"), trie.suggest("rEpOrT", 5).stream().map(NameTrie.Suggestion::name).toList());
+        assertEquals(List.of(), trie.suggest("repx", 5));
+        assertEquals(List.of(new NameTrie.Suggestion("invoice.pdf", 1)), trie.suggest("invoice.pdf", 5));
+        assertEquals(6, trie.suggest("", 10).size());
+    }
+
+    @Test
+    void removalTakesNamesBackAndCompactsTheTrie() {
+        var trie = new NameTrie();
+        List.of("notes", "notes-old", "notes-new", "notes").forEach(trie::add);
+
+        assertFalse(trie.remove("NOTES"));
+        assertTrue(trie.remove("notes"));
+        assertTrue(trie.remove("notes-old"));
+        assertFalse(trie.remove("notes-o"));
+        assertEquals(List.of(new NameTrie.Suggestion("notes", 1), new NameTrie.Suggestion("notes-new", 1)), trie.suggest("no", 5));
+        assertTrue(trie.remove("notes"));
+        assertEquals(List.of(new NameTrie.Suggestion("notes-new", 1)), trie.suggest("notes", 5));
+        assertTrue(trie.remove("notes-new"));
+        assertEquals(0, trie.size());
+        assertEquals(List.of(), trie.suggest("", 5));
+    }
+
+    /**
+     * Loads {@code SUGGEST_BENCHMARK_NAMES} generated file names and reports the heap they take and how long a
+     * top-10 suggestion takes, e.g. {@code SUGGEST_BENCHMARK_NAMES=1000000 mvn test -Dtest=NameTrieTest}.
+     */
+    @Test
+    @EnabledIfEnvironmentVariable(named = "SUGGEST_BENCHMARK_NAMES", matches = "\\d+")
+    void suggestionsStayFastAndSmallForMillionsOfNames() {
+        int names = Integer.parseInt(System.getenv("SUGGEST_BENCHMARK_NAMES"));
+        var words = new String[] { "report", "invoice", "contract", "scan", "photo", "budget", "minutes", "draft", "final", "summary" };
+        var extensions = new String[] { "pdf", "docx", "xlsx", "txt", "png" };
+        var random = new Random(42);
+        System.gc();
+        long before = usedHeap();
+        var trie = new NameTrie();
+        for(int index = 0; index < names; index++) {
+            trie.add(words[random.nextInt(words.length)] + "-" + random.nextInt(10_000) + "_" + Integer.toHexString(random.nextInt()) + "." + extensions[random.nextInt(extensions.length)]);
+        }
+        System.gc();
+        long heap = usedHeap() - before;
+        var prefixes = new String[] { "r", "rep", "report-12", "inv", "contract-9999_", "s", "" };
+        for(int round = 0; round < 10_000; round++) { trie.suggest(prefixes[round % prefixes.length], 10); }
+        int rounds = 100_000;
+        long start = System.nanoTime();
+        for(int round = 0; round < rounds; round++) { assertFalse(trie.suggest(prefixes[round % prefixes.length], 10).isEmpty()); }
+        double micros = (System.nanoTime() - start) / (rounds * 1_000.0);
+        System.out.printf("%,d names: %,d bytes per name, %.1f µs per top-10 suggestion%n", names, heap / names, micros);
+        assertTrue(heap / names < 256, "The trie takes " + heap / names + " bytes per name");
+        assertTrue(micros < 100, "A suggestion takes " + micros + " µs");
+    }
+
+    private static long usedHeap() {
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+}
@@ -0,0 +1,98 @@
+package project.brianle.securestorage.security;
+
+import jakarta.servlet.http.Cookie;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.context.SecurityContextHolder;
+import project.brianle.securestorage.domain.Token;
+import project.brianle.securestorage.domain.TokenData;
+import project.brianle.securestorage.dto.response.UserResponse;
+import project.brianle.securestorage.service.UserService;
+import project.brianle.securestorage.service.impl.JwtServiceImpl;
+
+import java.util.Base64;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+import static project.brianle.securestorage.enumeration.TokenType.ACCESS;
+
+class CustomAuthorizationFilterTest {
+    private UserService userService;
+    private SecurityVersionRegistry securityVersions;
+    private JwtServiceImpl jwtService;
+    private UserResponse user;
+
+    @BeforeEach
+    void setUp() {
+        userService = mock(UserService.class);
+        securityVersions = mock(SecurityVersionRegistry.class);
+        var keyRing = new JwtKeyRing();
+        keyRing.setSecret(Base64.getEncoder().encodeToString(new byte[64]));
+        keyRing.setPreviousSecrets(List.of());
+        keyRing.init();
+        jwtService = new JwtServiceImpl(userService, securityVersions, keyRing);
+        jwtService.setExpiration(3600L);
+        user = new UserResponse();
+        user.setId(1L);
+        user.setUserId("user-1");
+        user.setRole("USER");
+        user.setAuthorities("document:read");
+        when(userService.getUserByUserId(anyString())).thenReturn(user);
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void accessTokenIsResolvedWithSingleUserLookup() throws Exception {
+        var request = new MockHttpServletRequest("GET", "/documents");
+        request.setCookies(new Cookie(ACCESS.getValue(), jwtService.createToken(user, Token::getAccess)));
+
+        new CustomAuthorizationFilter(jwtService).doFilter(request, new MockHttpServletResponse(), new MockFilterChain());
+
+        var authentication = SecurityContextHolder.getContext().getAuthentication();
+        assertNotNull(authentication);
+        assertEquals(user, authentication.getPrincipal());
+        assertEquals(2, authentication.getAuthorities().size());
+        verify(userService, times(1)).getUserByUserId("user-1");
+    }
+
+    @Test
+    void statelessAccessTokenSkipsUserLookupWhileVersionIsCurrent() throws Exception {
+        jwtService.setStateless(true);
+        when(securityVersions.get("user-1")).thenReturn(0L);
+        var request = new MockHttpServletRequest("GET", "/documents");
+        request.setCookies(new Cookie(ACCESS.getValue(), jwtService.createToken(user, Token::getAccess)));
+
+        new CustomAuthorizationFilter(jwtService).doFilter(request, new MockHttpServletResponse(), new MockFilterChain());
+
+        assertEquals("user-1", ((UserResponse) SecurityContextHolder.getContext().getAuthentication().getPrincipal()).getUserId());
+        verify(userService, never()).getUserByUserId(anyString());
+    }
+
+    @Test
+    void statelessAccessTokenCarriesNoPersonalDetails() {
+        jwtService.setStateless(true);
+        when(securityVersions.get("user-1")).thenReturn(0L);
+        user.setEmail("jane@example.com");
+        user.setPhone("555-0100");
+
+        var token = jwtService.createToken(user, Token::getAccess);
+        var payload = new String(Base64.getUrlDecoder().decode(token.split("\\.")[1]));
+
+        assertFalse(payload.contains("jane@example.com"));
+        assertFalse(payload.contains("555-0100"));
+        assertEquals(1L, jwtService.getTokenData(token, TokenData::getUser).getId());
+        verify(userService, never()).getUserByUserId(anyString());
+    }
+}
@@ -0,0 +1,109 @@
+package project.brianle.securestorage.security;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.jpa.mapping.JpaMetamodelMappingContext;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import project.brianle.securestorage.domain.TokenData;
+import project.brianle.securestorage.dto.response.UserResponse;
+import project.brianle.securestorage.handler.CustomAccessDeniedHandler;
+import project.brianle.securestorage.handler.CustomAuthenticationEntryPoint;
+import project.brianle.securestorage.repository.RoleRepository;
+import project.brianle.securestorage.service.JwtService;
+import project.brianle.securestorage.service.UserService;
+
+import java.util.Optional;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static project.brianle.securestorage.enumeration.TokenType.ACCESS;
+
+/**
+ * Runs the real filter chain in front of an empty web layer, so a path that gets past security answers 404.
+ */
+@WebMvcTest(controllers = FilterChainConfigurationTest.class)
+@Import({FilterChainConfiguration.class, CustomHttpConfigurer.class, CustomAccessDeniedHandler.class, CustomAuthenticationEntryPoint.class})
+class FilterChainConfigurationTest {
+    @Autowired
+    private MockMvc mockMvc;
+    @MockBean
+    private JwtService jwtService;
+    @MockBean
+    private UserService userService;
+    @MockBean
+    private CustomAuthenticationProvider customAuthenticationProvider;
+    @MockBean
+    private RateLimitProperties rateLimitProperties;
+    @MockBean
+    private MeterRegistry meterRegistry;
+    //the application class runs a role repository at startup and enables JPA auditing
+    @MockBean
+    private RoleRepository roleRepository;
+    @MockBean
+    private JpaMetamodelMappingContext jpaMetamodelMappingContext;
+
+    @BeforeEach
+    void setUp() {
+        when(jwtService.extractToken(any(), anyString())).thenReturn(Optional.empty());
+        when(jwtService.extractToken(any(), eq(ACCESS.getValue()))).thenAnswer(invocation -> {
+            var cookies = invocation.<HttpServletRequest>getArgument(0).getCookies();
+            return cookies == null ? Optional.empty() : Optional.of(cookies[0].getValue());
+        });
+        token("user-token", "USER");
+        token("admin-token", "ADMIN");
+    }
+
+    @Test
+    void healthIsPublic() throws Exception {
+        assertEquals(404, status(get("/actuator/health"), null));
+    }
+
+    @Test
+    void metricsNeedAnAdmin() throws Exception {
+        assertDenied(status(get("/actuator/metrics"), null));
+        assertDenied(status(get("/actuator/metrics/jvm.memory.used"), null));
+        assertDenied(status(get("/actuator/metrics"), "user-token"));
+        assertEquals(404, status(get("/actuator/metrics"), "admin-token"));
+    }
+
+    @Test
+    void cacheRegionsNeedAnAdmin() throws Exception {
+        assertDenied(status(get("/actuator/cacheregions"), null));
+        assertDenied(status(get("/actuator/cacheregions"), "user-token"));
+        assertEquals(404, status(get("/actuator/cacheregions"), "admin-token"));
+    }
+
+    private int status(MockHttpServletRequestBuilder request, String token) throws Exception {
+        if(token != null) { request.cookie(new Cookie(ACCESS.getValue(), token)); }
+        return mockMvc.perform(request).andReturn().getResponse().getStatus();
+    }
+
+    private void token(String token, String role) {
+        var user = new UserResponse();
+        user.setUserId(token);
+        var tokenData = TokenData.builder().user(user).valid(true).authorities(AuthorityUtils.createAuthorityList("ROLE_" + role)).build();
+        when(jwtService.getTokenData(eq(token), any())).thenAnswer(invocation -> {
+            Function<TokenData, ?> function = invocation.getArgument(1);
+            return function.apply(tokenData);
+        });
+    }
+
+    private static void assertDenied(int status) {
+        assertTrue(status == 401 || status == 403, "expected 401 or 403, was " + status);
+    }
+}
@@ -0,0 +1,23 @@
+package project.brianle.securestorage.security;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TokenBucketLimiterTest {
+
+    @Test
+    void bucketDrainsThenRefillsAtConfiguredRate() {
+        var limiter = new TokenBucketLimiter(5, Duration.ofSeconds(10), 16, 1_000);
+        for(int i = 0; i < 5; i++) { assertEquals(0, limiter.tryAcquire("ip:10.0.0.1", 0)); }
+
+        long wait = limiter.tryAcquire("ip:10.0.0.1", 0);
+        assertEquals(Duration.ofSeconds(2).toNanos(), wait);
+        assertEquals(0, limiter.tryAcquire("ip:10.0.0.2", 0));
+        assertEquals(0, limiter.tryAcquire("ip:10.0.0.1", wait));
+        assertTrue(limiter.tryAcquire("ip:10.0.0.1", wait) > 0);
+    }
+}
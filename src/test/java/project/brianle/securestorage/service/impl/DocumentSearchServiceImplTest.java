@@ -0,0 +1,76 @@
+package project.brianle.securestorage.service.impl;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.util.unit.DataSize;
+import project.brianle.securestorage.entity.DocumentEntity;
+import project.brianle.securestorage.repository.DocumentRepository;
+import project.brianle.securestorage.search.ContentSearchProperties;
+import project.brianle.securestorage.search.DocumentContentIndex;
+import project.brianle.securestorage.search.DocumentNameSuggester;
+import project.brianle.securestorage.search.TextExtractor;
+import project.brianle.securestorage.storage.BlobStore;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class DocumentSearchServiceImplTest {
+    private static final String TEXT = "Quarterly revenue grew in the northern region";
+
+    @TempDir
+    Path directory;
+    private BlobStore blobStore;
+    private ContentSearchProperties properties;
+    private DocumentContentIndex contentIndex;
+    private DocumentSearchServiceImpl searchService;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        properties = new ContentSearchProperties();
+        properties.setDirectory(directory.toString());
+        contentIndex = new DocumentContentIndex(properties);
+        blobStore = mock(BlobStore.class);
+        when(blobStore.open(anyString(), anyLong(), anyLong())).thenAnswer(invocation -> new ByteArrayInputStream(TEXT.getBytes(StandardCharsets.UTF_8)));
+        var documentRepository = mock(DocumentRepository.class);
+        when(documentRepository.findByDocumentId("doc-1")).thenReturn(Optional.of(DocumentEntity.builder()
+                .documentId("doc-1").checksum("hash-1").name("report.txt").extension("txt").size(TEXT.length()).build()));
+        searchService = new DocumentSearchServiceImpl(documentRepository, mock(JdbcTemplate.class), blobStore, contentIndex,
+                new TextExtractor(properties), properties, mock(DocumentNameSuggester.class));
+        searchService.index("doc-1");
+        contentIndex.refresh();
+        clearInvocations(blobStore);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        contentIndex.close();
+    }
+
+    @Test
+    void searchDoesNotReadBlobStorage() throws Exception {
+        var page = searchService.search("northern", 0, 50);
+
+        assertEquals("doc-1", page.getContent().get(0).getDocumentId());
+        verify(blobStore, never()).open(anyString(), anyLong(), anyLong());
+    }
+
+    @Test
+    void highlightReadsOnlyTheRequestedDocument() throws Exception {
+        assertTrue(searchService.highlight("doc-1", "northern").contains("<mark>northern</mark>"));
+        verify(blobStore, times(1)).open(anyString(), anyLong(), anyLong());
+
+        properties.setMaxHighlightFileSize(DataSize.ofBytes(10));
+        assertNull(searchService.highlight("doc-1", "northern"));
+        verify(blobStore, times(1)).open(anyString(), anyLong(), anyLong());
+    }
+}
@@ -0,0 +1,125 @@
+package project.brianle.securestorage.service.impl;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import project.brianle.securestorage.cache.CacheStore;
+import project.brianle.securestorage.dto.IDocument;
+import project.brianle.securestorage.dto.response.UserResponse;
+import project.brianle.securestorage.entity.DocumentEntity;
+import project.brianle.securestorage.entity.UserEntity;
+import project.brianle.securestorage.exceptions.CustomException;
+import project.brianle.securestorage.repository.DocumentRepository;
+import project.brianle.securestorage.repository.UserRepository;
+import project.brianle.securestorage.service.UserService;
+import project.brianle.securestorage.storage.BlobStore;
+import project.brianle.securestorage.storage.StorageIoExecutor;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class DocumentServiceImplTest {
+    private static final String BOUNDARY = "part-boundary";
+    private static final String HELLO_HASH = "2cf24dba5fb0a30e26e83b2ac5b9e29e1b161e5c1fa7425e73043362938b9824";
+
+    @TempDir
+    Path directory;
+    private DocumentRepository documentRepository;
+    private BlobStore blobStore;
+    private PlatformTransactionManager transactionManager;
+    private DocumentServiceImpl documentService;
+    private MockHttpServletRequest request;
+
+    @BeforeEach
+    void setUp() {
+        documentRepository = mock(DocumentRepository.class);
+        var userRepository = mock(UserRepository.class);
+        var userService = mock(UserService.class);
+        blobStore = mock(BlobStore.class);
+        transactionManager = mock(PlatformTransactionManager.class);
+        CacheStore<String, IDocument> documentCache = mock();
+        documentService = new DocumentServiceImpl(documentRepository, userRepository, userService, documentCache,
+                mock(StorageIoExecutor.class), blobStore, mock(ApplicationEventPublisher.class), new TransactionTemplate(transactionManager));
+        ReflectionTestUtils.setField(documentService, "maxFileSize", DataSize.ofMegabytes(1));
+        ReflectionTestUtils.setField(documentService, "maxRequestSize", DataSize.ofMegabytes(2));
+
+        var owner = new UserEntity();
+        owner.setId(1L);
+        when(userRepository.findUserByUserId("user-1")).thenReturn(Optional.of(owner));
+        when(userService.getUserById(1L)).thenReturn(new UserResponse());
+        when(documentRepository.save(any(DocumentEntity.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        when(blobStore.newTempFile()).thenAnswer(invocation -> directory.resolve(UUID.randomUUID() + ".tmp"));
+        request = new MockHttpServletRequest("POST", "/documents/stream");
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+    }
+
+    @AfterEach
+    void tearDown() {
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    @Test
+    void partsAreReadBeforeTheTransactionStarts() throws Exception {
+        multipart(request, "a.txt", "hello", "b.txt", "hello");
+        var committed = new ArrayList<String>();
+        when(transactionManager.getTransaction(any())).thenAnswer(invocation -> {
+            assertTrue(request.getInputStream().isFinished(), "the body is read before a connection is taken");
+            return new SimpleTransactionStatus();
+        });
+        when(blobStore.acquire(HELLO_HASH, 5)).thenReturn(true, false);
+        doAnswer(invocation -> committed.add(Files.readString(invocation.getArgument(0)))).when(blobStore).commit(any(), eq(HELLO_HASH), anyString());
+
+        var documents = documentService.streamDocuments("user-1", request);
+
+        assertEquals(List.of("a.txt", "b.txt"), documents.stream().map(document -> document.getName()).toList());
+        assertEquals(List.of("hello"), committed);
+        verify(transactionManager).commit(any());
+        try(var files = Files.list(directory)) { assertEquals(0, files.count()); }
+    }
+
+    @Test
+    void failedPartRollsBackAndLeavesNoTempFiles() throws Exception {
+        multipart(request, "a.txt", "hello");
+        when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+        when(blobStore.acquire(HELLO_HASH, 5)).thenReturn(true);
+        doThrow(new java.io.IOException("disk full")).when(blobStore).commit(any(), anyString(), anyString());
+
+        assertThrows(CustomException.class, () -> documentService.streamDocuments("user-1", request));
+
+        verify(transactionManager).rollback(any());
+        verify(documentRepository, never()).save(any());
+        try(var files = Files.list(directory)) { assertEquals(0, files.count()); }
+    }
+
+    //name, content, name, content...
+    private static void multipart(MockHttpServletRequest request, String... parts) throws Exception {
+        var body = new ByteArrayOutputStream();
+        for(int index = 0; index < parts.length; index += 2) {
+            body.write(("--" + BOUNDARY + "\r\nContent-Disposition: form-data; name=\"files\"; filename=\"" + parts[index]
+                    + "\"\r\nContent-Type: text/plain\r\n\r\n" + parts[index + 1] + "\r\n").getBytes(StandardCharsets.US_ASCII));
+        }
+        body.write(("--" + BOUNDARY + "--\r\n").getBytes(StandardCharsets.US_ASCII));
+        request.setContentType("multipart/form-data; boundary=" + BOUNDARY);
+        request.setContent(body.toByteArray());
+    }
+}
@@ -0,0 +1,129 @@
+package project.brianle.securestorage.service.impl;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.unit.DataSize;
+import project.brianle.securestorage.dto.response.DocumentResponse;
+import project.brianle.securestorage.exceptions.CustomException;
+import project.brianle.securestorage.service.DocumentService;
+import project.brianle.securestorage.storage.BlobStore;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class UploadServiceImplTest {
+    @TempDir
+    Path directory;
+    private DocumentService documentService;
+    private BlobStore blobStore;
+    private UploadServiceImpl uploadService;
+
+    @BeforeEach
+    void setUp() {
+        documentService = mock(DocumentService.class);
+        blobStore = mock(BlobStore.class);
+        when(blobStore.newTempFile()).thenAnswer(invocation -> directory.resolve(UUID.randomUUID() + ".tmp"));
+        when(blobStore.tempDirectory()).thenReturn(directory);
+        uploadService = newUploadService();
+    }
+
+    @Test
+    void chunksArriveInAnyOrder() throws Exception {
+        var upload = uploadService.createUpload("user-1", "report.txt", 10);
+        assertEquals(3, upload.getChunkCount());
+
+        uploadService.writeChunk("user-1", upload.getUploadId(), 2, content("89"));
+        uploadService.writeChunk("user-1", upload.getUploadId(), 0, content("0123"));
+        var written = uploadService.writeChunk("user-1", upload.getUploadId(), 1, content("4567"));
+        assertEquals(List.of(0, 1, 2), written.getReceivedChunks());
+
+        var committed = new AtomicReference<String>();
+        when(documentService.saveDocument(eq("user-1"), eq("report.txt"), any())).thenAnswer(invocation -> {
+            committed.set(Files.readString(invocation.getArgument(2)));
+            return new DocumentResponse();
+        });
+        uploadService.commitUpload("user-1", upload.getUploadId());
+
+        assertEquals("0123456789", committed.get());
+        assertEquals(0, fileCount());
+    }
+
+    @Test
+    void shortAndOversizedChunksAreNotReceived() {
+        var upload = uploadService.createUpload("user-1", "report.txt", 10);
+
+        assertThrows(CustomException.class, () -> uploadService.writeChunk("user-1", upload.getUploadId(), 0, content("012")));
+        assertThrows(CustomException.class, () -> uploadService.writeChunk("user-1", upload.getUploadId(), 0, content("01234")));
+        assertThrows(CustomException.class, () -> uploadService.writeChunk("user-1", upload.getUploadId(), 3, content("0123")));
+
+        assertEquals(List.of(), uploadService.getUpload("user-1", upload.getUploadId()).getReceivedChunks());
+    }
+
+    @Test
+    void uploadWithMissingChunksIsNotCommitted() {
+        var upload = uploadService.createUpload("user-1", "report.txt", 10);
+        uploadService.writeChunk("user-1", upload.getUploadId(), 0, content("0123"));
+
+        var exception = assertThrows(CustomException.class, () -> uploadService.commitUpload("user-1", upload.getUploadId()));
+
+        assertTrue(exception.getMessage().contains("[1, 2]"));
+        verifyNoInteractions(documentService);
+    }
+
+    @Test
+    void uploadSurvivesARestart() {
+        var upload = uploadService.createUpload("user-1", "report.txt", 10);
+        uploadService.writeChunk("user-1", upload.getUploadId(), 1, content("4567"));
+
+        var restarted = newUploadService();
+        restarted.restoreSessions();
+
+        var restored = restarted.getUpload("user-1", upload.getUploadId());
+        assertEquals("report.txt", restored.getName());
+        assertEquals(List.of(1), restored.getReceivedChunks());
+        assertThrows(CustomException.class, () -> restarted.getUpload("user-2", upload.getUploadId()));
+    }
+
+    @Test
+    void openUploadsAreLimitedPerUser() {
+        uploadService.createUpload("user-1", "a.txt", 60);
+        assertThrows(CustomException.class, () -> uploadService.createUpload("user-1", "b.txt", 50));
+        var second = uploadService.createUpload("user-1", "b.txt", 40);
+        assertThrows(CustomException.class, () -> uploadService.createUpload("user-1", "c.txt", 1));
+
+        uploadService.createUpload("user-2", "c.txt", 1);
+        uploadService.abortUpload("user-1", second.getUploadId());
+        uploadService.createUpload("user-1", "c.txt", 1);
+    }
+
+    private UploadServiceImpl newUploadService() {
+        var service = new UploadServiceImpl(documentService, blobStore);
+        ReflectionTestUtils.setField(service, "chunkSize", DataSize.ofBytes(4));
+        ReflectionTestUtils.setField(service, "maxSize", DataSize.ofKilobytes(1));
+        ReflectionTestUtils.setField(service, "sessionTimeout", Duration.ofHours(24));
+        ReflectionTestUtils.setField(service, "maxSessionsPerUser", 2);
+        ReflectionTestUtils.setField(service, "maxReservedPerUser", DataSize.ofBytes(100));
+        return service;
+    }
+
+    private long fileCount() throws Exception {
+        try(var files = Files.list(directory)) { return files.count(); }
+    }
+
+    private static ByteArrayInputStream content(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.US_ASCII));
+    }
+}
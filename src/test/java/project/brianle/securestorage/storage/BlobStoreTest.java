@@ -0,0 +1,143 @@
+package project.brianle.securestorage.storage;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs against a local Postgres, e.g. {@code BLOB_STORE_DATABASE_URL=jdbc:postgresql://localhost:5432/test?user=postgres&password=postgres}.
+ */
+@EnabledIfEnvironmentVariable(named = "BLOB_STORE_DATABASE_URL", matches = ".+")
+class BlobStoreTest {
+    @TempDir
+    Path directory;
+    private JdbcTemplate jdbcTemplate;
+    private TransactionTemplate transactionTemplate;
+    private LocalDocumentStorage storage;
+    private BlobStore blobStore;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        var dataSource = new DriverManagerDataSource(System.getenv("BLOB_STORE_DATABASE_URL"));
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS blobs (hash CHARACTER VARYING(64) PRIMARY KEY, size BIGINT NOT NULL, ref_count INTEGER NOT NULL, stored_size BIGINT, created_at TIMESTAMP(6) NOT NULL)");
+        storage = new LocalDocumentStorage(ShardedDirectory.ofHashes(directory.resolve("blobs"), 2), directory.resolve("blobs/tmp"));
+        var compression = new CompressionProperties();
+        compression.setEnabled(false);
+        blobStore = new BlobStore(jdbcTemplate, transactionTemplate, storage, storage, null, compression, false, DataSize.ofKilobytes(64));
+    }
+
+    @Test
+    void contentIsStoredOnceAndCollectedWhenTheLastReferenceIsReleased() throws Exception {
+        var hash = newHash();
+
+        assertEquals(Boolean.TRUE, transactionTemplate.execute(status -> upload(hash)));
+        assertEquals(Boolean.FALSE, transactionTemplate.execute(status -> blobStore.acquire(hash, 5)));
+        assertEquals(2, refCount(hash));
+
+        blobStore.release(hash);
+        blobStore.collectGarbage();
+        assertTrue(blobStore.exists(hash));
+
+        blobStore.release(hash);
+        blobStore.release(hash);
+        assertEquals(0, refCount(hash));
+        blobStore.collectGarbage();
+        assertFalse(blobStore.exists(hash));
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM blobs WHERE hash = ?", Integer.class, hash));
+    }
+
+    @Test
+    void contentOfARolledBackUploadIsSweptAndCollected() {
+        var hash = newHash();
+        transactionTemplate.executeWithoutResult(status -> {
+            upload(hash);
+            status.setRollbackOnly();
+        });
+        assertTrue(blobStore.exists(hash));
+
+        blobStore.sweepOrphans();
+        blobStore.collectGarbage();
+
+        assertFalse(blobStore.exists(hash));
+    }
+
+    @Test
+    void contentOfAnUploadInFlightIsNotAdopted() throws Exception {
+        var hash = newHash();
+        var stored = new CountDownLatch(1);
+        var upload = CompletableFuture.runAsync(() -> transactionTemplate.executeWithoutResult(status -> {
+            upload(hash);
+            stored.countDown();
+            //keeps the new row uncommitted while the sweep runs
+            sleep(500);
+        }));
+        assertTrue(stored.await(10, TimeUnit.SECONDS));
+
+        blobStore.sweepOrphans();
+        upload.get(10, TimeUnit.SECONDS);
+        blobStore.collectGarbage();
+
+        assertEquals(1, refCount(hash));
+        assertTrue(blobStore.exists(hash));
+    }
+
+    @Test
+    void blobsWithoutContentStopBeingMeasured() {
+        var hash = newHash();
+        jdbcTemplate.update("INSERT INTO blobs (hash, size, ref_count, created_at) VALUES (?, 5, 1, now() - INTERVAL '2 hours')", hash);
+
+        blobStore.measureStoredSizes();
+        assertEquals(-1L, jdbcTemplate.queryForObject("SELECT stored_size FROM blobs WHERE hash = ?", Long.class, hash));
+
+        transactionTemplate.executeWithoutResult(status -> upload(hash));
+        blobStore.measureStoredSizes();
+        assertEquals(5L, jdbcTemplate.queryForObject("SELECT stored_size FROM blobs WHERE hash = ?", Long.class, hash));
+    }
+
+    private boolean upload(String hash) {
+        try {
+            boolean store = blobStore.acquire(hash, 5);
+            if(store) {
+                var file = blobStore.newTempFile();
+                Files.writeString(file, "hello");
+                blobStore.commit(file, hash, "hello.txt");
+            }
+            return store;
+        } catch (Exception exception) {
+            throw new IllegalStateException(exception);
+        }
+    }
+
+    private int refCount(String hash) {
+        return jdbcTemplate.queryForObject("SELECT ref_count FROM blobs WHERE hash = ?", Integer.class, hash);
+    }
+
+    private static String newHash() {
+        return (UUID.randomUUID().toString() + UUID.randomUUID()).replace("-", "");
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
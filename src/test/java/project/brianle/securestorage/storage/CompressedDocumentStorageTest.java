@@ -0,0 +1,77 @@
+package project.brianle.securestorage.storage;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.Set;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CompressedDocumentStorageTest {
+    private static final String KEY = "abcdef0123456789abcdef0123456789abcdef0123456789abcdef0123456789";
+    private static final int BLOCK_SIZE = 1024;
+
+    @TempDir
+    Path directory;
+    private LocalDocumentStorage backend;
+    private CompressedDocumentStorage storage;
+    private byte[] text;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        backend = new LocalDocumentStorage(ShardedDirectory.ofHashes(directory.resolve("blobs"), 2), directory.resolve("blobs/tmp"));
+        storage = new CompressedDocumentStorage(backend, backend::newTempFile, BLOCK_SIZE, 1, 0.1, Set.of("zip"));
+        var builder = new StringBuilder();
+        for(int line = 0; builder.length() < BLOCK_SIZE * 3 + 100; line++) { builder.append("line ").append(line).append(" of a plain text document\n"); }
+        text = builder.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void compressibleContentIsStoredSmallerAndReadBackInRanges() throws Exception {
+        storage.put(KEY, write(text), "notes.txt");
+
+        assertTrue(backend.stat(KEY).orElseThrow().size() < text.length);
+        try(var input = storage.get(KEY)) { assertArrayEquals(text, input.readAllBytes()); }
+        try(var input = storage.get(KEY, BLOCK_SIZE - 10, BLOCK_SIZE + 20)) {
+            assertArrayEquals(Arrays.copyOfRange(text, BLOCK_SIZE - 10, BLOCK_SIZE * 2 + 10), input.readAllBytes());
+        }
+        try(var input = storage.get(KEY, text.length - 5, 100)) {
+            assertArrayEquals(Arrays.copyOfRange(text, text.length - 5, text.length), input.readAllBytes());
+        }
+    }
+
+    @Test
+    void storedMembersAreServableAsGzip() throws Exception {
+        storage.put(KEY, write(text), "notes.txt");
+
+        var gzip = storage.getGzip(KEY).orElseThrow();
+        try(var input = new GZIPInputStream(gzip.content())) { assertArrayEquals(text, input.readAllBytes()); }
+    }
+
+    @Test
+    void incompressibleOrSkippedContentIsStoredUnchanged() throws Exception {
+        var random = new byte[BLOCK_SIZE * 2];
+        new Random(42).nextBytes(random);
+        storage.put(KEY, write(random), "photo.bin");
+        assertEquals(random.length, backend.stat(KEY).orElseThrow().size());
+        assertTrue(storage.getGzip(KEY).isEmpty());
+
+        var other = KEY.replace('a', 'b');
+        storage.put(other, write(text), "archive.ZIP");
+        assertEquals(text.length, backend.stat(other).orElseThrow().size());
+        try(var input = storage.get(other, 10, 20)) { assertArrayEquals(Arrays.copyOfRange(text, 10, 30), input.readAllBytes()); }
+    }
+
+    private Path write(byte[] bytes) throws Exception {
+        var file = backend.newTempFile();
+        Files.write(file, bytes);
+        return file;
+    }
+}
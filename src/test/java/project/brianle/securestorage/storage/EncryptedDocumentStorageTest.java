@@ -0,0 +1,103 @@
+package project.brianle.securestorage.storage;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EncryptedDocumentStorageTest {
+    private static final String KEY = "abcdef0123456789abcdef0123456789abcdef0123456789abcdef0123456789";
+    private static final int SEGMENT_SIZE = 1024;
+
+    @TempDir
+    Path directory;
+    private LocalDocumentStorage backend;
+    private EncryptedDocumentStorage storage;
+    private byte[] content;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        var keyRing = new MasterKeyRing(Base64.getEncoder().encodeToString(new byte[32]), List.of());
+        keyRing.init();
+        backend = new LocalDocumentStorage(ShardedDirectory.ofHashes(directory.resolve("blobs"), 2), directory.resolve("blobs/tmp"));
+        storage = new EncryptedDocumentStorage(backend, keyRing, backend::newTempFile, SEGMENT_SIZE);
+        content = new byte[SEGMENT_SIZE * 3 + 100];
+        new Random(42).nextBytes(content);
+    }
+
+    @Test
+    void contentIsEncryptedAtRestAndDecryptedOnRead() throws Exception {
+        put(content);
+
+        var stored = Files.readAllBytes(backend.getDirectory().locate(KEY));
+        assertEquals(EncryptedDocumentStorage.HEADER_SIZE + content.length + 4 * 16, stored.length);
+        assertFalse(Arrays.equals(Arrays.copyOfRange(stored, EncryptedDocumentStorage.HEADER_SIZE, EncryptedDocumentStorage.HEADER_SIZE + 100), Arrays.copyOf(content, 100)));
+        try(var input = storage.get(KEY)) {
+            assertArrayEquals(content, input.readAllBytes());
+        }
+    }
+
+    @Test
+    void rangeReadsDecryptOnlyTheSegmentsTheyTouch() throws Exception {
+        put(content);
+
+        for(long[] range : new long[][] { { 0, 10 }, { 1000, 100 }, { SEGMENT_SIZE, SEGMENT_SIZE }, { 3000, 5000 }, { content.length - 1, 1 } }) {
+            int offset = (int) range[0];
+            int end = (int) Math.min(content.length, range[0] + range[1]);
+            try(var input = storage.get(KEY, range[0], range[1])) {
+                assertArrayEquals(Arrays.copyOfRange(content, offset, end), input.readAllBytes());
+            }
+        }
+    }
+
+    @Test
+    void emptyContentRoundTrips() throws Exception {
+        put(new byte[0]);
+
+        try(var input = storage.get(KEY)) {
+            assertEquals(0, input.readAllBytes().length);
+        }
+    }
+
+    @Test
+    void tamperedContentFailsAuthentication() throws Exception {
+        put(content);
+        var stored = backend.getDirectory().locate(KEY);
+        try(var channel = Files.newByteChannel(stored, StandardOpenOption.WRITE)) {
+            channel.position(EncryptedDocumentStorage.HEADER_SIZE + SEGMENT_SIZE + 5).write(ByteBuffer.wrap(new byte[] { 1 }));
+        }
+
+        try(var input = storage.get(KEY)) {
+            assertThrows(IOException.class, input::readAllBytes);
+        }
+    }
+
+    @Test
+    void contentStoredBeforeEncryptionPassesThrough() throws Exception {
+        var file = backend.newTempFile();
+        Files.write(file, content);
+        backend.put(KEY, file);
+
+        try(var input = storage.get(KEY, 10, 20)) {
+            assertArrayEquals(Arrays.copyOfRange(content, 10, 30), input.readAllBytes());
+        }
+    }
+
+    private void put(byte[] bytes) throws IOException {
+        var file = backend.newTempFile();
+        Files.write(file, bytes);
+        storage.put(KEY, file);
+        assertFalse(Files.exists(file));
+    }
+}
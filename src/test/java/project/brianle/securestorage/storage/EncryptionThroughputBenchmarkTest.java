@@ -0,0 +1,119 @@
+package project.brianle.securestorage.storage;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.nio.file.StandardOpenOption.CREATE_NEW;
+import static java.nio.file.StandardOpenOption.WRITE;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Stores and reads back one large file with and without encryption and reports the throughput of both, e.g.
+ * {@code ENCRYPTION_BENCHMARK_SIZE=4GB mvn test -Dtest=EncryptionThroughputBenchmarkTest}. While it runs, the heap in
+ * use is sampled to show that neither direction buffers the file: the peak stays a small constant however large
+ * the file is. Both timings include generating the input file, so the write figures compare like with like.
+ */
+@EnabledIfEnvironmentVariable(named = "ENCRYPTION_BENCHMARK_SIZE", matches = ".+")
+class EncryptionThroughputBenchmarkTest {
+    private static final String KEY = "abcdef0123456789abcdef0123456789abcdef0123456789abcdef0123456789";
+    private static final long MAX_HEAP_GROWTH = DataSize.ofMegabytes(256).toBytes();
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void encryptionKeepsUpWithPlainStorage() throws Exception {
+        long size = DataSize.parse(System.getenv("ENCRYPTION_BENCHMARK_SIZE")).toBytes();
+        var keyRing = new MasterKeyRing(Base64.getEncoder().encodeToString(new byte[32]), List.of());
+        keyRing.init();
+        var plain = new LocalDocumentStorage(ShardedDirectory.ofHashes(directory.resolve("plain"), 2), directory.resolve("plain/tmp"));
+        var backend = new LocalDocumentStorage(ShardedDirectory.ofHashes(directory.resolve("encrypted"), 2), directory.resolve("encrypted/tmp"));
+        var encrypted = new EncryptedDocumentStorage(backend, keyRing, backend::newTempFile, (int) DataSize.ofKilobytes(64).toBytes());
+
+        //AES-GCM is only fast once the JIT has compiled its intrinsics
+        for(int round = 0; round < 3; round++) {
+            encrypted.put(KEY, generate(backend.newTempFile(), DataSize.ofMegabytes(256).toBytes()));
+            drain(encrypted.get(KEY), DataSize.ofMegabytes(256).toBytes());
+            encrypted.delete(KEY);
+        }
+        System.gc();
+        long baseline = usedHeap();
+        var peak = new AtomicLong(baseline);
+        var running = new AtomicBoolean(true);
+        var sampler = new Thread(() -> {
+            while(running.get()) {
+                peak.accumulateAndGet(usedHeap(), Math::max);
+                try { Thread.sleep(5); } catch (InterruptedException exception) { return; }
+            }
+        });
+        sampler.start();
+        try {
+            long plainWrite = time(() -> plain.put(KEY, generate(plain.newTempFile(), size)));
+            long encryptedWrite = time(() -> encrypted.put(KEY, generate(backend.newTempFile(), size)));
+            long plainRead = time(() -> drain(plain.get(KEY), size));
+            long encryptedRead = time(() -> drain(encrypted.get(KEY), size));
+            long rangeRead = time(() -> drain(encrypted.get(KEY, size / 2, 1 << 20), 1 << 20));
+            System.out.printf("%d MiB: write plain %d MiB/s, encrypted %d MiB/s; read plain %d MiB/s, encrypted %d MiB/s; 1 MiB range %d ms%n",
+                    size >> 20, throughput(size, plainWrite), throughput(size, encryptedWrite),
+                    throughput(size, plainRead), throughput(size, encryptedRead), rangeRead / 1_000_000);
+        } finally {
+            running.set(false);
+            sampler.join();
+        }
+        System.out.printf("peak heap growth %d MiB%n", (peak.get() - baseline) >> 20);
+        assertTrue(peak.get() - baseline < MAX_HEAP_GROWTH, "content was buffered on the heap");
+    }
+
+    //generated in a fixed buffer so producing the input never buffers the file either
+    private static Path generate(Path file, long size) throws Exception {
+        var buffer = ByteBuffer.allocate(1 << 20);
+        for(int i = 0; i < buffer.capacity(); i++) { buffer.put(i, (byte) (i * 31)); }
+        try(var channel = FileChannel.open(file, CREATE_NEW, WRITE)) {
+            for(long written = 0; written < size; ) {
+                buffer.clear().limit((int) Math.min(buffer.capacity(), size - written));
+                written += channel.write(buffer);
+            }
+        }
+        return file;
+    }
+
+    private static void drain(InputStream input, long expected) throws Exception {
+        try(input) {
+            assertEquals(expected, input.transferTo(OutputStream.nullOutputStream()));
+        }
+    }
+
+    private static long usedHeap() {
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+
+    private static long throughput(long size, long nanos) {
+        return (size >> 20) * 1_000_000_000L / Math.max(1, nanos);
+    }
+
+    private static long time(Task task) throws Exception {
+        long start = System.nanoTime();
+        task.run();
+        return System.nanoTime() - start;
+    }
+
+    @FunctionalInterface
+    private interface Task {
+        void run() throws Exception;
+    }
+}
@@ -0,0 +1,52 @@
+package project.brianle.securestorage.storage;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ShardedDirectoryTest {
+    private static final String HASH = "abcdef0123456789abcdef0123456789abcdef0123456789abcdef0123456789";
+
+    @TempDir
+    Path root;
+
+    @Test
+    void hashesAreShardedByTheirLeadingBytes() {
+        assertEquals(root.resolve("ab/cd/" + HASH), ShardedDirectory.ofHashes(root, 2).sharded(HASH));
+        assertEquals(root.resolve(HASH), ShardedDirectory.ofHashes(root, 0).sharded(HASH));
+    }
+
+    @Test
+    void flatFilesStayReadableUntilMigrated() throws Exception {
+        var directory = ShardedDirectory.ofNames(root, 3);
+        Files.writeString(root.resolve("photo.png"), "old");
+
+        assertTrue(directory.exists("photo.png"));
+        assertEquals(root.resolve("photo.png"), directory.locate("photo.png"));
+        assertEquals(List.of("photo.png"), directory.flatNames(name -> true));
+
+        assertTrue(directory.migrate("photo.png"));
+
+        assertFalse(Files.exists(root.resolve("photo.png")));
+        assertEquals(directory.sharded("photo.png"), directory.locate("photo.png"));
+        assertEquals("old", Files.readString(directory.locate("photo.png")));
+        assertFalse(directory.migrate("photo.png"));
+    }
+
+    @Test
+    void migrationKeepsContentWrittenThroughTheShards() throws Exception {
+        var directory = ShardedDirectory.ofNames(root, 2);
+        Files.writeString(root.resolve("photo.png"), "old");
+        Files.writeString(directory.prepare("photo.png"), "new");
+
+        directory.migrate("photo.png");
+
+        assertFalse(Files.exists(root.resolve("photo.png")));
+        assertEquals("new", Files.readString(directory.locate("photo.png")));
+    }
+}
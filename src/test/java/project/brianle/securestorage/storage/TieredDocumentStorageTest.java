@@ -0,0 +1,66 @@
+package project.brianle.securestorage.storage;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TieredDocumentStorageTest {
+    private static final String KEY = "abcdef0123456789abcdef0123456789abcdef0123456789abcdef0123456789";
+
+    @TempDir
+    Path directory;
+    private LocalDocumentStorage hot;
+    private LocalDocumentStorage cold;
+    private TieredDocumentStorage storage;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        hot = new LocalDocumentStorage(ShardedDirectory.ofHashes(directory.resolve("hot"), 2), directory.resolve("hot/tmp"));
+        cold = new LocalDocumentStorage(ShardedDirectory.ofHashes(directory.resolve("cold"), 2), directory.resolve("cold/tmp"));
+        storage = new TieredDocumentStorage(hot, cold, Duration.ofDays(1), Duration.ofHours(1));
+        var file = hot.newTempFile();
+        Files.writeString(file, "0123456789");
+        storage.put(KEY, file);
+    }
+
+    @Test
+    void idleContentIsDemotedAndPromotedBackOnRead() throws Exception {
+        Files.setLastModifiedTime(hot.getDirectory().locate(KEY), FileTime.from(Instant.now().minus(Duration.ofDays(2))));
+
+        storage.demoteIdle();
+
+        assertTrue(hot.stat(KEY).isEmpty());
+        assertEquals(10, storage.stat(KEY).orElseThrow().size());
+        try(var input = storage.get(KEY, 2, 3)) {
+            assertEquals("234", new String(input.readAllBytes()));
+        }
+        assertTrue(hot.stat(KEY).isPresent());
+    }
+
+    @Test
+    void coldContentHasNoLocalPathUntilRead() throws Exception {
+        Files.setLastModifiedTime(hot.getDirectory().locate(KEY), FileTime.from(Instant.now().minus(Duration.ofDays(2))));
+        storage.demoteIdle();
+
+        assertTrue(storage.localPath(KEY).isEmpty());
+        assertTrue(hot.stat(KEY).isEmpty());
+        storage.get(KEY).close();
+        assertTrue(storage.localPath(KEY).isPresent());
+    }
+
+    @Test
+    void recentlyReadContentStaysHot() throws Exception {
+        storage.demoteIdle();
+
+        assertTrue(hot.stat(KEY).isPresent());
+        assertTrue(cold.stat(KEY).isEmpty());
+    }
+}
@@ -0,0 +1,158 @@
+package project.brianle.securestorage.utils;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import project.brianle.securestorage.domain.DocumentFile;
+import project.brianle.securestorage.domain.EncodedContent;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DownloadUtilsTest {
+    @TempDir
+    Path directory;
+    private DocumentFile document;
+    private final AtomicInteger gzipOpens = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() throws Exception {
+        var file = Files.writeString(directory.resolve("blob"), "0123456789");
+        document = new DocumentFile("report.txt", file, "abc123", 10, Instant.parse("2024-01-01T00:00:00Z"));
+    }
+
+    @Test
+    void singleRangeIsPartialContent() throws Exception {
+        var request = new MockHttpServletRequest("GET", "/documents/download/report.txt");
+        request.addHeader("Range", "bytes=2-5");
+        var response = new MockHttpServletResponse();
+
+        DownloadUtils.writeDocument(document, request, response);
+
+        assertEquals(206, response.getStatus());
+        assertEquals("bytes 2-5/10", response.getHeader("Content-Range"));
+        assertEquals("2345", response.getContentAsString());
+        assertEquals("\"abc123\"", response.getHeader("ETag"));
+    }
+
+    @Test
+    void multipleRangesAreMultipartByteRanges() throws Exception {
+        var request = new MockHttpServletRequest("GET", "/documents/download/report.txt");
+        request.addHeader("Range", "bytes=0-1,8-");
+        var response = new MockHttpServletResponse();
+
+        DownloadUtils.writeDocument(document, request, response);
+
+        assertEquals(206, response.getStatus());
+        assertTrue(response.getContentType().startsWith("multipart/byteranges"));
+        var body = response.getContentAsString(StandardCharsets.US_ASCII);
+        assertTrue(body.contains("Content-Range: bytes 0-1/10\r\n\r\n01"));
+        assertTrue(body.contains("Content-Range: bytes 8-9/10\r\n\r\n89"));
+    }
+
+    @Test
+    void matchingEtagIsNotModified() throws Exception {
+        var request = new MockHttpServletRequest("GET", "/documents/download/report.txt");
+        request.addHeader("If-None-Match", "\"abc123\"");
+        var response = new MockHttpServletResponse();
+
+        DownloadUtils.writeDocument(document, request, response);
+
+        assertEquals(304, response.getStatus());
+        assertEquals(0, response.getContentAsByteArray().length);
+    }
+
+    @Test
+    void unsatisfiableRangeIsRejected() throws Exception {
+        var request = new MockHttpServletRequest("GET", "/documents/download/report.txt");
+        request.addHeader("Range", "bytes=20-30");
+        var response = new MockHttpServletResponse();
+
+        DownloadUtils.writeDocument(document, request, response);
+
+        assertEquals(416, response.getStatus());
+        assertEquals("bytes */10", response.getHeader("Content-Range"));
+    }
+
+    @Test
+    void malformedRangeIsIgnored() throws Exception {
+        var request = new MockHttpServletRequest("GET", "/documents/download/report.txt");
+        request.addHeader("Range", "bytes=five-six");
+        var response = new MockHttpServletResponse();
+
+        DownloadUtils.writeDocument(document, request, response);
+
+        assertEquals(200, response.getStatus());
+        assertEquals("0123456789", response.getContentAsString());
+    }
+
+    @Test
+    void gzipIsSentAsStoredToClientsThatAcceptIt() throws Exception {
+        var request = new MockHttpServletRequest("GET", "/documents/download/report.txt");
+        request.addHeader("Accept-Encoding", "gzip");
+        var response = new MockHttpServletResponse();
+
+        DownloadUtils.writeDocument(gzipDocument(), request, response);
+
+        assertEquals(200, response.getStatus());
+        assertEquals("gzip", response.getHeader("Content-Encoding"));
+        assertEquals("\"abc123-gzip\"", response.getHeader("ETag"));
+        assertEquals("0123456789", new String(new GZIPInputStream(new ByteArrayInputStream(response.getContentAsByteArray())).readAllBytes(), StandardCharsets.US_ASCII));
+        assertEquals(1, gzipOpens.get());
+    }
+
+    @Test
+    void matchingGzipEtagIsNotModifiedWithoutOpeningTheContent() throws Exception {
+        var request = new MockHttpServletRequest("GET", "/documents/download/report.txt");
+        request.addHeader("Accept-Encoding", "gzip");
+        request.addHeader("If-None-Match", "\"abc123-gzip\"");
+        var response = new MockHttpServletResponse();
+
+        DownloadUtils.writeDocument(gzipDocument(), request, response);
+
+        assertEquals(304, response.getStatus());
+        assertEquals("\"abc123-gzip\"", response.getHeader("ETag"));
+        assertEquals(0, gzipOpens.get());
+    }
+
+    @Test
+    void rangeIsServedFromTheIdentityRepresentationEvenWhenGzipIsAccepted() throws Exception {
+        var request = new MockHttpServletRequest("GET", "/documents/download/report.txt");
+        request.addHeader("Accept-Encoding", "gzip");
+        request.addHeader("Range", "bytes=2-5");
+        request.addHeader("If-None-Match", "\"abc123-gzip\"");
+        var response = new MockHttpServletResponse();
+
+        DownloadUtils.writeDocument(gzipDocument(), request, response);
+
+        assertEquals(206, response.getStatus());
+        assertEquals("2345", response.getContentAsString());
+        assertEquals("\"abc123\"", response.getHeader("ETag"));
+        assertNull(response.getHeader("Content-Encoding"));
+        assertEquals("Accept-Encoding", response.getHeader("Vary"));
+        assertEquals(0, gzipOpens.get());
+    }
+
+    private DocumentFile gzipDocument() throws Exception {
+        var compressed = new ByteArrayOutputStream();
+        try(var gzip = new GZIPOutputStream(compressed)) { gzip.write("0123456789".getBytes(StandardCharsets.US_ASCII)); }
+        return new DocumentFile(document.name(), document.path(), document.checksum(), document.size(), document.lastModified(), null, () -> {
+            gzipOpens.incrementAndGet();
+            return Optional.of(new EncodedContent(compressed.size(), new ByteArrayInputStream(compressed.toByteArray())));
+        });
+    }
+}
@@ -0,0 +1,27 @@
+package project.brianle.securestorage.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TimeOrderedIdGeneratorTest {
+
+    @Test
+    void idsAreVersionSevenAndOrderedByTime() throws Exception {
+        var first = TimeOrderedIdGenerator.INSTANCE.generateId();
+        Thread.sleep(2);
+        var second = TimeOrderedIdGenerator.INSTANCE.generateId();
+
+        assertEquals(7, first.version());
+        assertEquals(2, first.variant());
+        assertTrue(first.toString().compareTo(second.toString()) < 0);
+    }
+
+    @Test
+    void idsAreUnique() {
+        var ids = new HashSet<>();
+        for(int i = 0; i < 100_000; i++) { assertTrue(ids.add(TimeOrderedIdGenerator.INSTANCE.generateId())); }
+    }
+}